@@ -0,0 +1,28 @@
+package brc.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of {@code benchmarks.jar}.
+ * <p>
+ * Accepts the usual JMH command line options and always adds the {@code gc} profiler,
+ * so allocation rates are reported alongside throughput.
+ * <p>
+ * Usage: {@code java -jar pass2-bench/target/benchmarks.jar [jmh options]}, for example
+ * {@code -p engine=AMAZONQ,CHATGPT_V1 -p rows=1000000}.
+ */
+public class Benchmarks {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
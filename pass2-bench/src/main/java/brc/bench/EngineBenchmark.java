@@ -0,0 +1,73 @@
+package brc.bench;
+
+import brc.Engine;
+import brc.StationStats;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every pass2 engine over the same fixed inputs.
+ * <p>
+ * Throughput is reported both per file ({@code ops/s}) and per row through the {@code rows}
+ * counter. Before measuring, each trial checks that the engine's output matches the
+ * {@link MeasurementFiles#REFERENCE reference engine}, so a fast but wrong engine fails the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules=jdk.incubator.vector", "-Xmx8g"})
+public class EngineBenchmark {
+
+    @Param({"1000000", "10000000", "100000000"})
+    public long rows;
+
+    @Param
+    public Engine engine;
+
+    private Path file;
+
+    /**
+     * Counts processed rows so JMH reports rows per second next to files per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class RowCounter {
+        public long rows;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = MeasurementFiles.ensure(rows);
+        String expected = MeasurementFiles.expectedOutput(file);
+        String actual = engine.aggregate(file).toString();
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException(engine + " output differs from " + MeasurementFiles.REFERENCE
+                    + " for " + file);
+        }
+    }
+
+    @Benchmark
+    public SortedMap<String, StationStats> aggregate(RowCounter counter) throws IOException {
+        SortedMap<String, StationStats> result = engine.aggregate(file);
+        counter.rows += rows;
+        return result;
+    }
+}
@@ -0,0 +1,112 @@
+package brc.bench;
+
+import brc.Engine;
+import brc.MeasurementGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Fixed benchmark inputs.
+ * <p>
+ * Files are generated once into the directory named by the {@value #DIR_PROPERTY} system
+ * property (default {@code <java.io.tmpdir>/brc-bench}) and reused by later runs. They are written
+ * by the seeded {@link MeasurementGenerator}, so every engine and every run sees the same bytes.
+ * Next to each file the expected output, as produced by the reference engine, is cached.
+ */
+public final class MeasurementFiles {
+
+    /**
+     * System property naming the directory that holds the generated inputs.
+     */
+    public static final String DIR_PROPERTY = "brc.bench.dir";
+
+    /**
+     * The engine whose output every other engine is checked against.
+     */
+    public static final Engine REFERENCE = Engine.AMAZONQ;
+
+    private static final long SEED = 1_000_000_007L;
+
+    private MeasurementFiles() {
+    }
+
+    /**
+     * Returns the input file with the given number of rows and 413 stations, generating it if needed.
+     *
+     * @param rows the number of rows, including comment lines
+     * @return the path of the input file
+     */
+    public static Path ensure(long rows) {
+        return ensure(rows, 413);
+    }
+
+    /**
+     * Returns the input file with the given number of rows and stations, generating it if needed.
+     *
+     * @param rows     the number of rows, including comment lines
+     * @param stations the number of distinct stations
+     * @return the path of the input file
+     */
+    public static Path ensure(long rows, int stations) {
+        return ensure(rows, stations, 24);
+    }
+
+    /**
+     * Returns the input file with the given number of rows and stations and station names of
+     * 3 up to {@code maxNameLength} bytes, generating it if needed.
+     *
+     * @param rows          the number of rows, including comment lines
+     * @param stations      the number of distinct stations
+     * @param maxNameLength the longest station name in bytes
+     * @return the path of the input file
+     */
+    public static Path ensure(long rows, int stations, int maxNameLength) {
+        String name = "measurements-" + rows + "-" + stations + (maxNameLength == 24 ? "" : "-" + maxNameLength);
+        Path file = directory().resolve(name + ".txt");
+        if (Files.exists(file)) {
+            return file;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), "measurements", ".tmp");
+            MeasurementGenerator.builder()
+                    .seed(SEED)
+                    .rows(rows)
+                    .stations(stations)
+                    .nameLength(3, maxNameLength)
+                    .build()
+                    .generate(tmp);
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot generate " + file, e);
+        }
+        return file;
+    }
+
+    /**
+     * Returns the output the reference engine produces for the file, computing and caching it if needed.
+     *
+     * @param file an input file returned by {@link #ensure(long)}
+     * @return the expected {@code {Station=min/mean/max, ...}} output
+     */
+    public static String expectedOutput(Path file) {
+        Path expected = file.resolveSibling(file.getFileName() + ".expected");
+        try {
+            if (!Files.exists(expected)) {
+                Files.writeString(expected, REFERENCE.aggregate(file).toString());
+            }
+            return Files.readString(expected);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot compute the expected output of " + file, e);
+        }
+    }
+
+    private static Path directory() {
+        String dir = System.getProperty(DIR_PROPERTY);
+        return dir != null ? Path.of(dir) : Path.of(System.getProperty("java.io.tmpdir"), "brc-bench");
+    }
+}
@@ -0,0 +1,98 @@
+package brc.bench;
+
+import brc.Engine;
+import brc.SegmentAggregator;
+import brc.StationAggregator;
+import brc.StationStats;
+import brc.StationTable;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how throughput changes with the number of distinct stations, from the 400 or so of
+ * the original challenge to 50,000, with UTF-8 names of up to 100 bytes.
+ * <p>
+ * Every input has the same number of rows, so the {@code rows} counter is directly comparable
+ * across the {@code stations} values. Outputs are checked against the
+ * {@link MeasurementFiles#REFERENCE reference engine} as in {@link EngineBenchmark}.
+ * <p>
+ * For engines that build a {@link StationTable}, the {@link TableCounters} report how often a
+ * lookup missed its home slot and how far it probed, per row, so a drop in throughput can be told
+ * apart from a badly spreading hash.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules=jdk.incubator.vector", "-Xmx8g"})
+public class StationsBenchmark {
+
+    private static final long ROWS = 10_000_000;
+    private static final int MAX_NAME_LENGTH = 100;
+
+    @Param({"400", "2000", "10000", "50000"})
+    public int stations;
+
+    @Param({"CHATGPT_V1"})
+    public Engine engine;
+
+    private Path file;
+    private StationAggregator aggregator;
+
+    /**
+     * Hash table statistics of the merged table of the last run, per row.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class TableCounters {
+        public double collisionsPerRow;
+        public double probesPerRow;
+        public double distinctStations;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = MeasurementFiles.ensure(ROWS, stations, MAX_NAME_LENGTH);
+        String expected = MeasurementFiles.expectedOutput(file);
+        String actual = engine.aggregate(file).toString();
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException(engine + " output differs from " + MeasurementFiles.REFERENCE
+                    + " for " + file);
+        }
+        aggregator = engine.create();
+    }
+
+    @Benchmark
+    public SortedMap<String, StationStats> aggregate(EngineBenchmark.RowCounter counter, TableCounters table)
+            throws IOException {
+        SortedMap<String, StationStats> result;
+        if (aggregator instanceof SegmentAggregator segments) {
+            StationTable merged = segments.aggregateTable(file);
+            table.collisionsPerRow = (double) merged.collisions() / ROWS;
+            table.probesPerRow = (double) merged.probes() / ROWS;
+            table.distinctStations = merged.size();
+            result = merged.toSortedMap();
+        } else {
+            result = aggregator.aggregate(file);
+        }
+        counter.rows += ROWS;
+        return result;
+    }
+}
@@ -0,0 +1,174 @@
+package brc;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Command line entry point that runs any of the pass2 engines on a measurements file
+ * and prints the standard {@code {Station=min/mean/max, ...}} output.
+ * <p>
+ * Usage: {@code java brc.Aggregate [--engine=<name>] [--incremental[=<state_file>] | --shards=<n> | --percentiles] [--quarantine=<file> [--quarantine-lines=<n>]] <input_file>}
+ * <p>
+ * Without {@code --engine} the engine named by the {@code brc.engine} system property is used.
+ * Engines that support both read the file mapped or, with {@code -Dbrc.io=prefetch}, through a
+ * {@link PrefetchReader} (see {@link IoMode}).
+ * <p>
+ * A gzip-compressed input file is inflated while it is processed (see {@link GzipReader}). Only
+ * {@code chatgpt_v1} can do that, so it is used unless another engine is given, and gzip input
+ * cannot be combined with {@code --incremental}, {@code --shards} or {@code --percentiles}.
+ * With {@code --incremental} only the lines appended since the previous incremental run are
+ * read (see {@link IncrementalAggregator}); this needs an engine that is also a
+ * {@link SegmentAggregator} and uses {@code chatgpt_v1} unless another one is given. With
+ * {@code --shards} the file is split between that many worker JVMs (see {@link ShardCoordinator}),
+ * with the same engine requirement, and the malformed lines skipped by the workers are counted
+ * as usual but not quarantined. {@code --percentiles} ignores the engine and adds percentiles
+ * and the median of each station to the output (see {@link PercentileAggregator}); it keeps a
+ * histogram of up to 8 KB per station and processor.
+ * <p>
+ * Engines that report malformed lines (all but {@code amazonq}) count the lines they skip by
+ * {@link LineError category}; the counts are printed to standard error when there are any. With
+ * {@code --quarantine} the skipped lines are also copied to that file, up to
+ * {@code --quarantine-lines} of them (default {@value MalformedLines#DEFAULT_QUARANTINE_LINES}).
+ */
+public class Aggregate {
+
+    public static void main(String[] args) {
+        Engine engine = null;
+        Path state = null;
+        boolean incremental = false;
+        int shards = 0;
+        boolean percentiles = false;
+        Path quarantine = null;
+        long quarantineLines = MalformedLines.DEFAULT_QUARANTINE_LINES;
+        String file = null;
+        for (String arg : args) {
+            if (arg.startsWith("--engine=")) {
+                String name = arg.substring("--engine=".length());
+                try {
+                    engine = Engine.named(name);
+                } catch (IllegalArgumentException e) {
+                    usage("Unknown engine: " + name);
+                }
+            } else if (arg.equals("--incremental")) {
+                incremental = true;
+            } else if (arg.startsWith("--incremental=")) {
+                incremental = true;
+                state = Path.of(arg.substring("--incremental=".length()));
+            } else if (arg.equals("--percentiles")) {
+                percentiles = true;
+            } else if (arg.startsWith("--shards=")) {
+                shards = (int) number(arg, 1, Integer.MAX_VALUE);
+            } else if (arg.startsWith("--quarantine=")) {
+                quarantine = Path.of(arg.substring("--quarantine=".length()));
+            } else if (arg.startsWith("--quarantine-lines=")) {
+                quarantineLines = number(arg, 0, Long.MAX_VALUE);
+            } else {
+                file = arg;
+            }
+        }
+        if (file == null) {
+            usage(null);
+        }
+        // Checked up front, so a typo in a system property is a usage error and not a stack trace
+        try {
+            Engine.configured();
+        } catch (IllegalArgumentException e) {
+            usage("Unknown engine: -D" + Engine.ENGINE_PROPERTY + "=" + System.getProperty(Engine.ENGINE_PROPERTY));
+        }
+        try {
+            IoMode.configured();
+        } catch (IllegalArgumentException e) {
+            usage("Unknown I/O mode: -D" + IoMode.IO_PROPERTY + "=" + System.getProperty(IoMode.IO_PROPERTY));
+        }
+
+        Path input = Path.of(file);
+        boolean gzip;
+        try {
+            gzip = GzipReader.isGzip(input);
+        } catch (IOException e) {
+            System.err.println("Error reading the file: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        if (gzip && (incremental || shards > 0 || percentiles)) {
+            System.err.println("Gzip input cannot be used with --incremental, --shards or --percentiles");
+            System.exit(1);
+        }
+        Engine selected = engine != null ? engine : incremental || shards > 0 || gzip ? Engine.CHATGPT_V1 : Engine.configured();
+        if (quarantine != null && (shards > 0 || percentiles || !selected.reportsMalformedLines())) {
+            System.err.println("--quarantine needs an engine that reports malformed lines, and cannot be used with --shards or --percentiles");
+            System.exit(1);
+        }
+
+        try (MalformedLines malformedLines = quarantine != null
+                ? new MalformedLines(quarantine, quarantineLines) : new MalformedLines()) {
+            StationAggregator aggregator = selected.reportsMalformedLines() ? selected.create(malformedLines) : selected.create();
+            if ((incremental || shards > 0) && !(aggregator instanceof SegmentAggregator)) {
+                System.err.println("Engine " + selected.name().toLowerCase() + " cannot aggregate a byte range");
+                System.exit(1);
+            }
+            if (gzip && !(aggregator instanceof SegmentAggregator)) {
+                System.err.println("Engine " + selected.name().toLowerCase() + " cannot read gzip input");
+                System.exit(1);
+            }
+
+            if (percentiles) {
+                System.out.println(new PercentileAggregator().aggregate(input));
+            } else if (incremental) {
+                Path stateFile = state != null ? state : IncrementalAggregator.stateFileFor(input);
+                ResultWriter.stdout().write(new IncrementalAggregator((SegmentAggregator) aggregator, stateFile).aggregateTable(input));
+            } else if (shards > 0) {
+                ResultWriter.stdout().write(new ShardCoordinator(selected, shards, malformedLines).aggregateTable(input));
+            } else if (aggregator instanceof SegmentAggregator segments) {
+                // Engines that fill a StationTable are written from it, sorting the raw name bytes
+                ResultWriter.stdout().write(segments.aggregateTable(input));
+            } else {
+                ResultWriter.stdout().write(aggregator.aggregate(input));
+            }
+            if (malformedLines.total() > 0) {
+                System.err.println("Skipped malformed lines: " + malformedLines);
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading the file: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Parses the value of a {@code --name=<n>} option, or exits through {@link #usage(String)}.
+     *
+     * @param arg the whole argument
+     * @param min the smallest value allowed
+     * @param max the largest value allowed
+     */
+    private static long number(String arg, long min, long max) {
+        String value = arg.substring(arg.indexOf('=') + 1);
+        try {
+            long parsed = Long.parseLong(value);
+            if (parsed >= min && parsed <= max) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        usage("Expected a number from " + min + " to " + max + ": " + arg);
+        return min;
+    }
+
+    private static void usage(String error) {
+        if (error != null) {
+            System.err.println(error);
+        }
+        System.err.println("Usage: java brc.Aggregate [--engine=<name>] [--incremental[=<state_file>] | --shards=<n> | --percentiles] [--quarantine=<file> [--quarantine-lines=<n>]] <input_file>");
+        System.err.println("--percentiles keeps a histogram of up to 8 KB per station and processor");
+        System.err.println("Engines: " + Arrays.stream(Engine.values())
+                .map(e -> e.name().toLowerCase())
+                .collect(Collectors.joining(", ")));
+        System.err.println("I/O modes (-D" + IoMode.IO_PROPERTY + "): " + Arrays.stream(IoMode.values())
+                .map(m -> m.name().toLowerCase())
+                .collect(Collectors.joining(", ")));
+        System.exit(1);
+    }
+}
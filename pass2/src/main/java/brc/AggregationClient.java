@@ -0,0 +1,58 @@
+package brc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Sends a file to a running {@link AggregationServer} and prints the result.
+ * <p>
+ * Usage: {@code java brc.AggregationClient <socket_path> <input_file>}
+ */
+public class AggregationClient {
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: java brc.AggregationClient <socket_path> <input_file>");
+            System.exit(1);
+        }
+
+        try {
+            String response = request(Path.of(args[0]), Path.of(args[1]));
+            if (response.startsWith(AggregationServer.OK)) {
+                System.out.println(response.substring(AggregationServer.OK.length()));
+            } else {
+                System.err.println(response);
+                System.exit(1);
+            }
+        } catch (IOException e) {
+            System.err.println("Error contacting the server: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Asks the server to aggregate a file.
+     *
+     * @param socket the socket the server listens on
+     * @param file   the measurements file; relative paths are resolved against this process's directory
+     * @return the response line of the server
+     * @throws IOException if the server cannot be reached or closes the connection without answering
+     */
+    public static String request(Path socket, Path file) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            channel.write(StandardCharsets.UTF_8.encode(file.toAbsolutePath() + "\n"));
+            String response = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8)).readLine();
+            if (response == null) {
+                throw new IOException("The server closed the connection without answering");
+            }
+            return response;
+        }
+    }
+}
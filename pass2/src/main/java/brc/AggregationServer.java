@@ -0,0 +1,203 @@
+package brc;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps an engine resident in a long-running JVM and aggregates files on request over a Unix
+ * domain socket.
+ * <p>
+ * On inputs of a few hundred MB a one-shot run spends most of its time starting the JVM and
+ * running interpreted or C1-compiled code. A resident server pays that once: after the first
+ * requests the engine runs C2-compiled code.
+ * <p>
+ * The protocol is one request per connection. The client sends the absolute path of the input
+ * file followed by {@code '\n'}; the server answers with one line, either {@code "OK "} and the
+ * standard {@code {Station=min/mean/max, ...}} output, or {@code "ERROR "} and a message, and
+ * closes the connection.
+ * <p>
+ * Every connection gets its own virtual thread, which has {@value #REQUEST_TIMEOUT_MILLIS} ms to
+ * read a request line of at most {@value #MAX_REQUEST_BYTES} bytes, so a client that connects and
+ * never sends anything holds up no one else. The runs themselves are served one at a time, as
+ * each one already uses every core; a request that waits more than {@value #RUN_WAIT_MILLIS} ms
+ * for its turn is answered with an error. Waiting requests hold a {@link ReentrantLock} rather
+ * than a monitor, so their virtual threads release their carrier threads while they wait.
+ * <p>
+ * Usage: {@code java brc.AggregationServer [--engine=<name>] [--warmup=<file>] <socket_path>}
+ * <p>
+ * See {@link AggregationClient} for the client side.
+ */
+public class AggregationServer {
+
+    static final String OK = "OK ";
+    static final String ERROR = "ERROR ";
+    static final long REQUEST_TIMEOUT_MILLIS = 10_000;
+    static final int MAX_REQUEST_BYTES = 4096;
+    static final long RUN_WAIT_MILLIS = 60_000;
+
+    private final StationAggregator aggregator;
+    private final Path socket;
+    private final ReentrantLock running = new ReentrantLock();
+
+    /**
+     * @param aggregator the engine to run
+     * @param socket     the path of the socket file
+     */
+    public AggregationServer(StationAggregator aggregator, Path socket) {
+        this.aggregator = aggregator;
+        this.socket = socket;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Engine engine = null;
+        Path warmup = null;
+        Path socket = null;
+        for (String arg : args) {
+            if (arg.startsWith("--engine=")) {
+                engine = Engine.named(arg.substring("--engine=".length()));
+            } else if (arg.startsWith("--warmup=")) {
+                warmup = Path.of(arg.substring("--warmup=".length()));
+            } else {
+                socket = Path.of(arg);
+            }
+        }
+        if (socket == null) {
+            System.err.println("Usage: java brc.AggregationServer [--engine=<name>] [--warmup=<file>] <socket_path>");
+            System.exit(1);
+        }
+        if (engine == null) {
+            engine = Engine.configured();
+        }
+
+        if (warmup != null) {
+            // A few runs so the hot loops are C2-compiled before the first request
+            for (int i = 0; i < 5; i++) {
+                engine.aggregate(warmup);
+            }
+        }
+        new AggregationServer(engine, socket).serve();
+    }
+
+    /**
+     * Binds the socket and serves requests until the JVM exits. A stale socket file left by a
+     * previous server is replaced, and the socket file is removed when the JVM shuts down.
+     *
+     * @throws IOException if the socket cannot be bound
+     */
+    public void serve() throws IOException {
+        Files.deleteIfExists(socket);
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Files.deleteIfExists(socket);
+                } catch (IOException e) {
+                    // nothing left to do while shutting down
+                }
+            }));
+            System.err.println("Listening on " + socket);
+            while (true) {
+                SocketChannel client = server.accept();
+                Thread.ofVirtual().name("brc-request").start(() -> {
+                    try (client) {
+                        handle(client);
+                    } catch (IOException e) {
+                        System.err.println("Request failed: " + e.getMessage());
+                    }
+                });
+            }
+        }
+    }
+
+    private void handle(SocketChannel client) throws IOException {
+        String path = readRequest(client);
+        String response;
+        if (path == null || path.isBlank()) {
+            response = ERROR + "No input file given";
+        } else {
+            try {
+                response = OK + aggregate(Path.of(path));
+            } catch (IOException | RuntimeException e) {
+                // The protocol is one line per response
+                response = ERROR + String.valueOf(e).replaceAll("[\\r\\n]+", " ");
+            }
+        }
+        ByteBuffer out = StandardCharsets.UTF_8.encode(response + '\n');
+        while (out.hasRemaining()) {
+            client.write(out);
+        }
+    }
+
+    /**
+     * Runs the engine for one request at a time.
+     *
+     * @throws IOException if the file cannot be read, or another run holds the engine for longer
+     *                     than {@value #RUN_WAIT_MILLIS} ms
+     */
+    private String aggregate(Path file) throws IOException {
+        try {
+            if (!running.tryLock(RUN_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Server busy for more than " + RUN_WAIT_MILLIS + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the engine");
+        }
+        try {
+            return aggregator.aggregate(file).toString();
+        } finally {
+            running.unlock();
+        }
+    }
+
+    /**
+     * Reads the request line, giving up once the deadline passes or the line grows too long.
+     *
+     * @return the line without its newline, or null if the client closed the connection first
+     * @throws IOException if the request is too slow or too long, or cannot be read
+     */
+    private static String readRequest(SocketChannel client) throws IOException {
+        ByteBuffer request = ByteBuffer.allocate(MAX_REQUEST_BYTES);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(REQUEST_TIMEOUT_MILLIS);
+        client.configureBlocking(false);
+        try (Selector selector = Selector.open()) {
+            client.register(selector, SelectionKey.OP_READ);
+            while (true) {
+                for (int i = 0; i < request.position(); i++) {
+                    if (request.get(i) == '\n') {
+                        return new String(request.array(), 0, i, StandardCharsets.UTF_8);
+                    }
+                }
+                if (!request.hasRemaining()) {
+                    throw new IOException("Request longer than " + MAX_REQUEST_BYTES + " bytes");
+                }
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    throw new IOException("No request within " + REQUEST_TIMEOUT_MILLIS + " ms");
+                }
+                selector.select(remaining);
+                if (Thread.interrupted()) {
+                    throw new InterruptedIOException("Interrupted while reading the request");
+                }
+                if (client.read(request) < 0) {
+                    return null;
+                }
+            }
+        } finally {
+            // The selector is closed, so the channel is deregistered and may block again
+            client.configureBlocking(true);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package brc;
+
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Processes a segment with a fixed set of worker threads that claim fixed-size chunks from a
+ * shared cursor until the segment is done.
+ * <p>
+ * There is no up-front split: a worker that finishes early simply claims the next chunk, so
+ * uneven chunks (for example a region of long station names) do not leave cores idle at the
+ * end. Claimed chunks are aligned with {@link LineChunks#nextLineStart}; both neighbours of a
+ * boundary align it the same way, so every line is processed exactly once.
+ */
+public final class ChunkScheduler {
+
+    /**
+     * Default chunk size: large enough to make claiming cheap, small enough to balance well.
+     */
+    public static final long DEFAULT_CHUNK_SIZE = 2L << 20;
+
+    /**
+     * Processes the whole lines in {@code [start, end)} into a worker's private state.
+     *
+     * @param <W> the type of the worker state
+     */
+    @FunctionalInterface
+    public interface ChunkProcessor<W> {
+        void process(W worker, long start, long end);
+    }
+
+    private ChunkScheduler() {
+    }
+
+    /**
+     * Runs {@code workers} threads over the segment and returns their states once all are done.
+     *
+     * @param segment   the newline-terminated records to process
+     * @param workers   the number of worker threads
+     * @param chunkSize the number of bytes claimed at a time, before line alignment
+     * @param state     creates the private state of each worker
+     * @param processor processes one line-aligned chunk into a worker state
+     * @param <W>       the type of the worker state
+     * @return the worker states, one per thread, ready to be merged
+     */
+    public static <W> List<W> run(MemorySegment segment, int workers, long chunkSize,
+                                  Supplier<W> state, ChunkProcessor<W> processor) {
+        long size = segment.byteSize();
+        AtomicLong cursor = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<W> states = new ArrayList<>(workers);
+        List<Thread> threads = new ArrayList<>(workers);
+
+        for (int i = 0; i < workers; i++) {
+            W worker = state.get();
+            states.add(worker);
+            threads.add(Thread.ofPlatform().name("brc-worker-" + i).start(() -> {
+                try {
+                    long claimed;
+                    while (failure.get() == null && (claimed = cursor.getAndAdd(chunkSize)) < size) {
+                        long start = LineChunks.nextLineStart(segment, claimed, size);
+                        long end = LineChunks.nextLineStart(segment, Math.min(claimed + chunkSize, size), size);
+                        if (start < end) {
+                            processor.process(worker, start, end);
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }));
+        }
+
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, e);
+            }
+        }
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException e) {
+            throw e;
+        }
+        if (t instanceof Error e) {
+            throw e;
+        }
+        if (t != null) {
+            throw new IllegalStateException("Chunk processing was interrupted", t);
+        }
+        return states;
+    }
+}
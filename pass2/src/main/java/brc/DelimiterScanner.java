@@ -0,0 +1,102 @@
+package brc;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Finds the {@code ';'} and {@code '\n'} delimiters of the input.
+ * <p>
+ * {@link #best()} picks the SIMD kernel built on {@code jdk.incubator.vector} when the JVM
+ * was started with {@code --add-modules jdk.incubator.vector}, and the word-at-a-time
+ * {@link SwarScanner} otherwise. The choice can be forced with the {@value #SCANNER_PROPERTY}
+ * system property.
+ */
+public interface DelimiterScanner {
+
+    /**
+     * System property naming the scanner to use: {@code vector}, {@code swar} or {@code scalar}.
+     */
+    String SCANNER_PROPERTY = "brc.scanner";
+
+    /**
+     * Returns the offset of the first {@code delimiter} in {@code [from, to)}.
+     *
+     * @param segment   the segment to scan
+     * @param from      the first offset to look at
+     * @param to        the end of the range
+     * @param delimiter the byte to look for
+     * @return the offset of the delimiter, or {@code to} if the range does not contain it
+     */
+    long indexOf(MemorySegment segment, long from, long to, byte delimiter);
+
+    /**
+     * Receives the delimiters of one line from {@link #forEachLine}.
+     */
+    @FunctionalInterface
+    interface LineVisitor {
+
+        /**
+         * @param start     the offset of the first byte of the line
+         * @param separator the offset of the first {@code ';'}, or {@code end} if the line has none
+         * @param end       the offset of the terminating {@code '\n'}, or the end of the range
+         */
+        void line(long start, long separator, long end);
+    }
+
+    /**
+     * Finds the first {@code ';'} and the {@code '\n'} of every line in {@code [from, to)}, in
+     * order. By default each line takes two {@link #indexOf} calls; a scanner that can look for
+     * both delimiters at once finds them in a single pass.
+     *
+     * @param segment the segment to scan
+     * @param from    the start of the first line
+     * @param to      the end of the range
+     * @param visitor receives the delimiters of each line
+     */
+    default void forEachLine(MemorySegment segment, long from, long to, LineVisitor visitor) {
+        long lineStart = from;
+        while (lineStart < to) {
+            long lineEnd = indexOf(segment, lineStart, to, (byte) '\n');
+            visitor.line(lineStart, indexOf(segment, lineStart, lineEnd, (byte) ';'), lineEnd);
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    /**
+     * Returns the fastest scanner available in this JVM.
+     *
+     * @return the scanner to use
+     */
+    static DelimiterScanner best() {
+        String name = System.getProperty(SCANNER_PROPERTY);
+        boolean vector = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+        if ("vector".equals(name) || (name == null && vector)) {
+            if (!vector) {
+                throw new IllegalStateException("The vector scanner needs --add-modules jdk.incubator.vector");
+            }
+            try {
+                // Loaded reflectively so the incubator classes are never linked when the module is absent
+                return (DelimiterScanner) Class.forName("brc.VectorScanner").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot create the vector scanner", e);
+            }
+        }
+        return "scalar".equals(name) ? scalar() : new SwarScanner();
+    }
+
+    /**
+     * Returns the scanner that looks at one byte at a time.
+     *
+     * @return the scalar scanner
+     */
+    static DelimiterScanner scalar() {
+        return (segment, from, to, delimiter) -> {
+            for (long i = from; i < to; i++) {
+                if (segment.get(ValueLayout.JAVA_BYTE, i) == delimiter) {
+                    return i;
+                }
+            }
+            return to;
+        };
+    }
+}
@@ -0,0 +1,99 @@
+package brc;
+
+import gemini.Google_Gemini_TemperatureProcessor;
+import kumar.Codeium_OneBillionRowChallenge;
+import spoole.AmazonQ_TemperatureAnalyzer;
+import yourname.ChatGPT_BRCChallenge_V2;
+import yourname.ChatGPT_V1_TemperatureAnalyzer;
+import yourname.MS_CoPilot_TemperatureProcessor;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.SortedMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The registry of pass2 implementations that can be plugged in as a {@link StationAggregator}.
+ * <p>
+ * Every call to {@link #aggregate(Path)} runs on a fresh instance of the implementation,
+ * so no state leaks between runs in the same JVM.
+ */
+public enum Engine implements StationAggregator {
+    AMAZONQ(AmazonQ_TemperatureAnalyzer::new, null),
+    CODEIUM(Codeium_OneBillionRowChallenge::new, Codeium_OneBillionRowChallenge::new),
+    CHATGPT_V1(ChatGPT_V1_TemperatureAnalyzer::new, ChatGPT_V1_TemperatureAnalyzer::new),
+    CHATGPT_V2(ChatGPT_BRCChallenge_V2::new, ChatGPT_BRCChallenge_V2::new),
+    COPILOT(MS_CoPilot_TemperatureProcessor::new, MS_CoPilot_TemperatureProcessor::new),
+    GEMINI(Google_Gemini_TemperatureProcessor::new, Google_Gemini_TemperatureProcessor::new);
+
+    /**
+     * System property used to pick the engine when none is given explicitly.
+     */
+    public static final String ENGINE_PROPERTY = "brc.engine";
+
+    private final Supplier<StationAggregator> factory;
+    private final Function<MalformedLines, StationAggregator> reportingFactory;
+
+    Engine(Supplier<StationAggregator> factory, Function<MalformedLines, StationAggregator> reportingFactory) {
+        this.factory = factory;
+        this.reportingFactory = reportingFactory;
+    }
+
+    /**
+     * Creates a new instance of the implementation behind this engine.
+     *
+     * @return a fresh aggregator
+     */
+    public StationAggregator create() {
+        return factory.get();
+    }
+
+    /**
+     * @return true if the implementation can report the lines it skips as malformed
+     */
+    public boolean reportsMalformedLines() {
+        return reportingFactory != null;
+    }
+
+    /**
+     * Creates a new instance of the implementation that reports every line it skips as malformed.
+     *
+     * @param malformedLines receives the skipped lines
+     * @return a fresh aggregator
+     * @throws UnsupportedOperationException if the implementation does not report malformed lines
+     */
+    public StationAggregator create(MalformedLines malformedLines) {
+        if (reportingFactory == null) {
+            throw new UnsupportedOperationException(name().toLowerCase(Locale.ROOT) + " does not report malformed lines");
+        }
+        return reportingFactory.apply(malformedLines);
+    }
+
+    @Override
+    public SortedMap<String, StationStats> aggregate(Path file) throws IOException {
+        return create().aggregate(file);
+    }
+
+    /**
+     * Looks up an engine by name, ignoring case. Dashes may be used in place of underscores.
+     *
+     * @param name the engine name, for example {@code chatgpt-v1}
+     * @return the matching engine
+     * @throws IllegalArgumentException if there is no engine with that name
+     */
+    public static Engine named(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+
+    /**
+     * Returns the engine named by the {@value #ENGINE_PROPERTY} system property,
+     * or {@link #AMAZONQ} when the property is not set.
+     *
+     * @return the configured engine
+     */
+    public static Engine configured() {
+        return named(System.getProperty(ENGINE_PROPERTY, AMAZONQ.name()));
+    }
+}
@@ -0,0 +1,318 @@
+package brc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Processes gzip-compressed measurement files without decompressing them to disk, using only
+ * {@link java.util.zip.Inflater} (see {@link GzipStream}).
+ * <p>
+ * A file of many members, either BGZF as written by {@code bgzip} or gzip files concatenated with
+ * {@code cat}, is split into runs of whole members that are inflated and parsed in parallel.
+ * Member boundaries come from the {@code BC} block size of BGZF headers when present, otherwise
+ * from a scan for member headers. A scan can be fooled by compressed bytes that look like a
+ * header, so every run records where its last member really ended, and runs are only used when
+ * they start exactly where the previous one ended; any stretch no valid run covers is inflated
+ * again sequentially. Only a run from a scanned start may fail that way: a run from the start of
+ * the file or of a BGZF block that cannot be inflated fails the whole file. Lines cut between runs
+ * are put back together at the end.
+ * <p>
+ * A file of one member cannot be split: it is inflated on the calling thread, which feeds the
+ * workers through the buffer ring of a {@link PrefetchReader}.
+ * <p>
+ * Only the worker states that are returned belong to the result; the states of discarded runs
+ * have already seen some lines. A processor must therefore keep everything it records, including
+ * {@link MalformedLines#deferred() malformed lines}, in the worker state.
+ */
+public final class GzipReader {
+
+    private static final int RUNS_PER_WORKER = 4;
+    private static final int PROBE_SIZE = 1 << 16;
+
+    /**
+     * Everything one run of members produced: the worker state with its complete lines, and the
+     * bytes before the first and after the last newline, which belong to lines shared with the
+     * neighbouring runs.
+     */
+    private record Run<W>(long start, long end, W state, byte[] head, byte[] tail, boolean hasNewline) {
+    }
+
+    private GzipReader() {
+    }
+
+    /**
+     * Tells whether a file starts with the gzip magic number.
+     *
+     * @param file the file to check
+     * @return true if the file is gzip-compressed
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isGzip(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(2);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // Read both bytes, even if they arrive one at a time
+            }
+            return magic.position() == 2 && magic.get(0) == (byte) 0x1f && magic.get(1) == (byte) 0x8b;
+        }
+    }
+
+    /**
+     * Inflates the file and processes the lines on {@code workers} threads, returning their
+     * states once all are done.
+     *
+     * @param file       the gzip-compressed, newline-terminated records to process
+     * @param workers    the number of worker threads
+     * @param bufferSize the size of each buffer of inflated bytes, which must exceed the longest line
+     * @param state      creates the private state of a worker
+     * @param processor  processes the lines of one buffer into a worker state
+     * @param <W>        the type of the worker state
+     * @return the worker states, ready to be merged
+     * @throws IOException if the file cannot be read or is not valid gzip
+     */
+    public static <W> List<W> run(Path file, int workers, int bufferSize,
+                                  Supplier<W> state, PrefetchReader.BufferProcessor<W> processor) throws IOException {
+        try (MappedFile mapped = MappedFile.open(file)) {
+            MemorySegment data = mapped.segment();
+            long[] starts = runStarts(data, workers * RUNS_PER_WORKER);
+            if (starts.length == 1) {
+                try (GzipStream stream = new GzipStream(data, 0, data.byteSize())) {
+                    return PrefetchReader.run(stream, workers, bufferSize, state, processor);
+                }
+            }
+            boolean scanned = GzipStream.blockSize(data, 0) <= 0;
+            return runInParallel(data, starts, scanned, workers, bufferSize, state, processor);
+        }
+    }
+
+    /**
+     * Inflates the runs on worker threads, then chains the valid ones in file order and processes
+     * the lines that were cut between them. {@code scanned} tells whether the starts after the
+     * first were found by a scan, and so may be false.
+     */
+    private static <W> List<W> runInParallel(MemorySegment data, long[] starts, boolean scanned, int workers, int bufferSize,
+                                             Supplier<W> state, PrefetchReader.BufferProcessor<W> processor) throws IOException {
+        @SuppressWarnings("unchecked")
+        Run<W>[] runs = (Run<W>[]) new Run<?>[starts.length];
+        AtomicInteger next = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            threads.add(Thread.ofPlatform().name("brc-worker-" + i).start(() -> {
+                try {
+                    MemorySegment buffer = MemorySegment.ofBuffer(ByteBuffer.allocateDirect(bufferSize));
+                    int claimed;
+                    while (failure.get() == null && (claimed = next.getAndIncrement()) < starts.length) {
+                        long limit = claimed + 1 < starts.length ? starts[claimed + 1] : data.byteSize();
+                        try {
+                            runs[claimed] = run(data, starts[claimed], limit, buffer, state.get(), processor);
+                        } catch (IOException e) {
+                            if (claimed == 0 || !scanned) {
+                                throw e;
+                            }
+                            // A falsely detected member start; its stretch is inflated again from the previous run
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, e);
+            }
+        }
+        Throwable t = failure.get();
+        if (t instanceof IOException e) {
+            throw e;
+        }
+        if (t instanceof RuntimeException e) {
+            throw e;
+        }
+        if (t instanceof Error e) {
+            throw e;
+        }
+        if (t != null) {
+            throw new IllegalStateException("Gzip processing was interrupted", t);
+        }
+
+        List<W> states = new ArrayList<>(starts.length + 1);
+        ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        W joined = state.get();
+        MemorySegment buffer = null;
+        long position = 0;
+        int index = 0;
+        while (position < data.byteSize()) {
+            while (index < starts.length && starts[index] < position) {
+                index++;
+            }
+            Run<W> run = index < starts.length && starts[index] == position ? runs[index] : null;
+            if (run == null) {
+                // Not covered by a valid run: inflate up to the next start sequentially
+                if (buffer == null) {
+                    buffer = MemorySegment.ofBuffer(ByteBuffer.allocateDirect(bufferSize));
+                }
+                int following = index < starts.length && starts[index] == position ? index + 1 : index;
+                long limit = following < starts.length ? starts[following] : data.byteSize();
+                run = run(data, position, limit, buffer, state.get(), processor);
+            }
+            states.add(run.state());
+            pending.writeBytes(run.head());
+            if (run.hasNewline()) {
+                processJoined(pending, joined, processor);
+                pending.writeBytes(run.tail());
+            }
+            position = run.end();
+        }
+        processJoined(pending, joined, processor);
+        states.add(joined);
+        return states;
+    }
+
+    private static <W> void processJoined(ByteArrayOutputStream pending, W joined,
+                                          PrefetchReader.BufferProcessor<W> processor) {
+        if (pending.size() > 0) {
+            processor.process(joined, MemorySegment.ofArray(pending.toByteArray()));
+            pending.reset();
+        }
+    }
+
+    /**
+     * Inflates the members from {@code start} up to the first one ending at or after {@code limit},
+     * processing every complete line and keeping the partial lines at both ends.
+     */
+    private static <W> Run<W> run(MemorySegment data, long start, long limit, MemorySegment buffer,
+                                  W state, PrefetchReader.BufferProcessor<W> processor) throws IOException {
+        try (GzipStream stream = new GzipStream(data, start, limit)) {
+            byte[] head = null;
+            long carried = 0;
+            while (true) {
+                ByteBuffer target = buffer.asByteBuffer().position((int) carried);
+                boolean end = false;
+                while (target.hasRemaining()) {
+                    if (stream.read(target) < 0) {
+                        end = true;
+                        break;
+                    }
+                }
+                long length = target.position();
+                long from = 0;
+                if (head == null) {
+                    long firstLineEnd = nextLineEnd(buffer, 0, length);
+                    if (firstLineEnd < 0) {
+                        if (end) {
+                            return new Run<>(start, stream.position(), state,
+                                    buffer.asSlice(0, length).toArray(ValueLayout.JAVA_BYTE), new byte[0], false);
+                        }
+                        throw new IOException("Line longer than the " + buffer.byteSize() + "-byte buffer");
+                    }
+                    head = buffer.asSlice(0, firstLineEnd).toArray(ValueLayout.JAVA_BYTE);
+                    from = firstLineEnd;
+                }
+                long lineEnd = lastLineEnd(buffer, from, length);
+                if (lineEnd > from) {
+                    processor.process(state, buffer.asSlice(from, lineEnd - from));
+                } else if (!end && from == 0) {
+                    throw new IOException("Line longer than the " + buffer.byteSize() + "-byte buffer");
+                }
+                carried = length - lineEnd;
+                MemorySegment.copy(buffer, length - carried, buffer, 0, carried);
+                if (end) {
+                    return new Run<>(start, stream.position(), state, head,
+                            buffer.asSlice(0, carried).toArray(ValueLayout.JAVA_BYTE), true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Picks up to {@code runs} member starts spread evenly over the file. Only the first member
+     * is guaranteed; the others are BGZF block starts, or scanned candidates that at least begin
+     * to inflate.
+     * <p>
+     * The scan for each target goes on until it finds a candidate, however large the members are,
+     * and the next target is past that candidate, so no byte is scanned twice. When nothing turns
+     * up before the end of the file the scan stops there. An ordinary {@code .gz} file is therefore
+     * scanned once, with the delimiter scanner, before it is inflated.
+     */
+    static long[] runStarts(MemorySegment data, int runs) {
+        long size = data.byteSize();
+        long step = Math.max(size / runs, 1);
+        long[] starts = new long[runs];
+        int count = 0;
+        starts[count++] = 0;
+        if (GzipStream.blockSize(data, 0) > 0) {
+            long target = step;
+            for (long block = 0, blockSize; block < size && (blockSize = GzipStream.blockSize(data, block)) > 0; block += blockSize) {
+                if (block >= target && count < runs) {
+                    starts[count++] = block;
+                    target = block + step;
+                }
+            }
+            return Arrays.copyOf(starts, count);
+        }
+
+        DelimiterScanner scanner = DelimiterScanner.best();
+        for (long target = step; target < size && count < runs; target = Math.max(target + step, starts[count - 1] + 1)) {
+            long candidate = scanner.indexOf(data, target, size, (byte) 0x1f);
+            while (candidate < size && !(GzipStream.isHeader(data, candidate) && inflates(data, candidate))) {
+                candidate = scanner.indexOf(data, candidate + 1, size, (byte) 0x1f);
+            }
+            if (candidate == size) {
+                break; // No member starts after the target
+            }
+            starts[count++] = candidate;
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * Inflates a little from a candidate member start. Compressed bytes that merely look like a
+     * header almost always fail within the first few bytes.
+     */
+    private static boolean inflates(MemorySegment data, long offset) {
+        try (GzipStream stream = new GzipStream(data, offset, offset + 1)) {
+            ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+            while (probe.hasRemaining() && stream.read(probe) >= 0) {
+                // Fill the probe or reach the end of the member
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static long nextLineEnd(MemorySegment buffer, long from, long to) {
+        for (long i = from; i < to; i++) {
+            if (buffer.get(ValueLayout.JAVA_BYTE, i) == '\n') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static long lastLineEnd(MemorySegment buffer, long from, long to) {
+        for (long i = to - 1; i >= from; i--) {
+            if (buffer.get(ValueLayout.JAVA_BYTE, i) == '\n') {
+                return i + 1;
+            }
+        }
+        return from;
+    }
+}
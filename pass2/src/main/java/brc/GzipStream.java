@@ -0,0 +1,210 @@
+package brc;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Inflates consecutive gzip members of a mapped file with a raw {@link Inflater}.
+ * <p>
+ * The member headers and trailers are parsed here rather than by {@link java.util.zip.GZIPInputStream},
+ * so the compressed offset of every member boundary is known; {@link GzipReader} relies on that
+ * to inflate different members of one file in parallel. The CRC and size in every trailer are
+ * checked.
+ */
+final class GzipStream implements PrefetchReader.Source, Closeable {
+
+    private static final int INPUT_CHUNK = 1 << 20;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final int RESERVED = 0xE0;
+    private static final ValueLayout.OfShort U16 = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfInt U32 = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private final MemorySegment file;
+    private final long limit;
+    private final Inflater inflater = new Inflater(true);
+    private final CRC32 crc = new CRC32();
+    private final byte[] input = new byte[INPUT_CHUNK];
+    private long position;
+    private boolean inMember;
+    private long memberSize;
+
+    /**
+     * @param file   the mapped gzip file
+     * @param offset the offset of the first member to inflate
+     * @param limit  no member starting at or after this offset is inflated
+     */
+    GzipStream(MemorySegment file, long offset, long limit) {
+        this.file = file;
+        this.position = offset;
+        this.limit = limit;
+    }
+
+    /**
+     * Inflates into the remaining space of {@code target}, moving on to the next member when one
+     * ends.
+     *
+     * @param target the buffer to fill
+     * @return the number of bytes inflated, or -1 once the member ending at or after the limit is done
+     * @throws IOException if a member is malformed or truncated
+     */
+    @Override
+    public int read(ByteBuffer target) throws IOException {
+        while (true) {
+            if (!inMember) {
+                if (position >= limit || position >= file.byteSize()) {
+                    return -1;
+                }
+                position = dataStart(file, position);
+                inflater.reset();
+                crc.reset();
+                memberSize = 0;
+                inMember = true;
+            }
+            if (inflater.needsInput()) {
+                if (position >= file.byteSize()) {
+                    throw new EOFException("Truncated gzip member");
+                }
+                // Copied, as the inflater cannot read a mapping owned by an arena
+                int length = (int) Math.min(INPUT_CHUNK, file.byteSize() - position);
+                MemorySegment.copy(file, ValueLayout.JAVA_BYTE, position, input, 0, length);
+                inflater.setInput(input, 0, length);
+                position += length;
+            }
+
+            int start = target.position();
+            int inflated;
+            try {
+                inflated = inflater.inflate(target);
+            } catch (DataFormatException e) {
+                throw new IOException("Malformed gzip data: " + e.getMessage(), e);
+            }
+            crc.update(target.slice(start, inflated));
+            memberSize += inflated;
+            if (inflater.finished()) {
+                position -= inflater.getRemaining();
+                checkTrailer();
+                inMember = false;
+            } else if (inflater.needsDictionary()) {
+                throw new IOException("Malformed gzip data: preset dictionary");
+            }
+            if (inflated > 0) {
+                return inflated;
+            }
+        }
+    }
+
+    /**
+     * @return the offset just after the last member that was finished
+     */
+    long position() {
+        return position;
+    }
+
+    @Override
+    public void close() {
+        inflater.end();
+    }
+
+    private void checkTrailer() throws IOException {
+        if (position + 8 > file.byteSize()) {
+            throw new EOFException("Truncated gzip trailer");
+        }
+        if (file.get(U32, position) != (int) crc.getValue() || file.get(U32, position + 4) != (int) memberSize) {
+            throw new IOException("Corrupt gzip member: checksum or size mismatch");
+        }
+        position += 8;
+    }
+
+    /**
+     * Checks the fixed part of a member header the way a real member must look: the magic, the
+     * deflate method, no reserved flags and a known compression level.
+     *
+     * @param file   the mapped file
+     * @param offset the offset of the candidate header
+     * @return true if a member can start at {@code offset}
+     */
+    static boolean isHeader(MemorySegment file, long offset) {
+        if (offset + 10 > file.byteSize()) {
+            return false;
+        }
+        int xfl = file.get(ValueLayout.JAVA_BYTE, offset + 8);
+        return file.get(ValueLayout.JAVA_BYTE, offset) == (byte) 0x1f
+                && file.get(ValueLayout.JAVA_BYTE, offset + 1) == (byte) 0x8b
+                && file.get(ValueLayout.JAVA_BYTE, offset + 2) == 8
+                && (file.get(ValueLayout.JAVA_BYTE, offset + 3) & RESERVED) == 0
+                && (xfl == 0 || xfl == 2 || xfl == 4);
+    }
+
+    /**
+     * Returns the size of the member at {@code offset} when its header carries one, as BGZF
+     * members do in their {@code BC} extra subfield.
+     *
+     * @param file   the mapped file
+     * @param offset the offset of the member header
+     * @return the size of the whole member in bytes, or -1 if the header does not give it
+     */
+    static long blockSize(MemorySegment file, long offset) {
+        if (!isHeader(file, offset) || (file.get(ValueLayout.JAVA_BYTE, offset + 3) & FEXTRA) == 0) {
+            return -1;
+        }
+        long end = Math.min(offset + 12 + Short.toUnsignedInt(file.get(U16, offset + 10)), file.byteSize());
+        for (long field = offset + 12; field + 4 <= end; ) {
+            int length = Short.toUnsignedInt(file.get(U16, field + 2));
+            if (file.get(ValueLayout.JAVA_BYTE, field) == 'B' && file.get(ValueLayout.JAVA_BYTE, field + 1) == 'C'
+                    && length == 2 && field + 6 <= end) {
+                return Short.toUnsignedInt(file.get(U16, field + 4)) + 1L;
+            }
+            field += 4 + length;
+        }
+        return -1;
+    }
+
+    /**
+     * Skips the header of the member at {@code offset}.
+     */
+    private static long dataStart(MemorySegment file, long offset) throws IOException {
+        if (!isHeader(file, offset)) {
+            throw new IOException("Not a gzip member at offset " + offset);
+        }
+        int flags = file.get(ValueLayout.JAVA_BYTE, offset + 3);
+        long position = offset + 10;
+        if ((flags & FEXTRA) != 0) {
+            position += 2 + Short.toUnsignedInt(file.get(U16, requireAvailable(file, position, 2)));
+        }
+        if ((flags & FNAME) != 0) {
+            position = skipString(file, position);
+        }
+        if ((flags & FCOMMENT) != 0) {
+            position = skipString(file, position);
+        }
+        if ((flags & FHCRC) != 0) {
+            position += 2;
+        }
+        return requireAvailable(file, position, 0);
+    }
+
+    private static long skipString(MemorySegment file, long position) throws IOException {
+        while (file.get(ValueLayout.JAVA_BYTE, requireAvailable(file, position, 1)) != 0) {
+            position++;
+        }
+        return position + 1;
+    }
+
+    private static long requireAvailable(MemorySegment file, long position, long bytes) throws IOException {
+        if (position + bytes > file.byteSize()) {
+            throw new EOFException("Truncated gzip header");
+        }
+        return position;
+    }
+}
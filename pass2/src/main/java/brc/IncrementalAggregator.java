@@ -0,0 +1,183 @@
+package brc;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.SortedMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Re-aggregates an append-only measurements file by processing only the bytes added since the
+ * previous run.
+ * <p>
+ * After each run the offset just past the last complete line and the statistics up to that
+ * offset are saved to a state file: a header holding the offset and a checksum of the head of
+ * the file, followed by a {@link StationSnapshot}. The next run maps the file, checks that the state still
+ * describes it and hands only the new complete lines to the {@link SegmentAggregator}. A last
+ * line without its {@code '\n'} is assumed to still be being written and is left for the next
+ * run.
+ * <p>
+ * The state is discarded and the file rescanned from the start if the file is now shorter than
+ * the saved offset, its first {@value #HEAD_BYTES} bytes changed, the saved offset is no longer
+ * at the start of a line, or the state file is truncated or corrupt.
+ */
+public final class IncrementalAggregator implements StationAggregator {
+
+    /**
+     * Number of bytes at the start of the file whose checksum identifies the file.
+     */
+    public static final int HEAD_BYTES = 4096;
+
+    private static final int MAGIC = 0x49435242; // "BRCI" read little-endian
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 32;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private final SegmentAggregator aggregator;
+    private final Path stateFile;
+
+    /**
+     * @param aggregator processes the newly appended lines
+     * @param stateFile  where the offset and statistics are kept between runs
+     */
+    public IncrementalAggregator(SegmentAggregator aggregator, Path stateFile) {
+        this.aggregator = aggregator;
+        this.stateFile = stateFile;
+    }
+
+    /**
+     * Returns the default state file for an input file: {@code <file>.state} next to it.
+     *
+     * @param file the measurements file
+     * @return the state file
+     */
+    public static Path stateFileFor(Path file) {
+        return file.resolveSibling(file.getFileName() + ".state");
+    }
+
+    /**
+     * Aggregates the lines appended since the previous run, merges them with the saved
+     * statistics and saves the new state.
+     *
+     * @param file the measurements file to read
+     * @return the statistics of all complete lines of the file
+     * @throws IOException if the file or the state file cannot be read or written
+     */
+    @Override
+    public SortedMap<String, StationStats> aggregate(Path file) throws IOException {
+        return aggregateTable(file).toSortedMap();
+    }
+
+    /**
+     * Like {@link #aggregate(Path)}, but returns the statistics as a table whose names are not
+     * decoded yet.
+     *
+     * @param file the measurements file to read
+     * @return the statistics of all complete lines of the file
+     * @throws IOException if the file or the state file cannot be read or written
+     */
+    public StationTable aggregateTable(Path file) throws IOException {
+        try (MappedFile mapped = MappedFile.open(file)) {
+            MemorySegment segment = mapped.segment();
+            StationTable table = new StationTable();
+            long offset = load(segment, table);
+
+            long end = lastLineEnd(segment, offset);
+            if (end > offset) {
+                table.merge(aggregator.aggregate(mapped.slice(offset, end - offset)));
+            }
+
+            int headLength = (int) Math.min(HEAD_BYTES, end);
+            save(end, headLength, checksum(segment, headLength), table);
+            return table;
+        }
+    }
+
+    /**
+     * Returns the offset just after the last {@code '\n'} at or after {@code from}, or
+     * {@code from} if there is none.
+     */
+    private static long lastLineEnd(MemorySegment segment, long from) {
+        for (long i = segment.byteSize() - 1; i >= from; i--) {
+            if (segment.get(ValueLayout.JAVA_BYTE, i) == '\n') {
+                return i + 1;
+            }
+        }
+        return from;
+    }
+
+    private static long checksum(MemorySegment segment, int length) {
+        CRC32C crc = new CRC32C();
+        // Buffers over shared mappings cannot be checksummed directly, so copy the head out first
+        crc.update(segment.asSlice(0, length).toArray(ValueLayout.JAVA_BYTE));
+        return crc.getValue();
+    }
+
+    /**
+     * Merges the saved statistics into the table if the state file still describes the file.
+     *
+     * @return the offset to continue from, 0 if the file has to be read from the start
+     */
+    private long load(MemorySegment file, StationTable table) throws IOException {
+        if (!Files.exists(stateFile)) {
+            return 0;
+        }
+        try (MappedFile mapped = MappedFile.open(stateFile)) {
+            MemorySegment state = mapped.segment();
+            if (state.byteSize() < HEADER_BYTES || state.get(INT, 0) != MAGIC || state.get(INT, 4) != VERSION) {
+                return 0;
+            }
+            long offset = state.get(LONG, 8);
+            int headLength = state.get(INT, 16);
+            long headChecksum = state.get(LONG, 24);
+            if (offset < 0 || offset > file.byteSize() || headLength != Math.min(HEAD_BYTES, offset)
+                    || checksum(file, headLength) != headChecksum
+                    || (offset > 0 && file.get(ValueLayout.JAVA_BYTE, offset - 1) != '\n')) {
+                return 0;
+            }
+            // Decoded into a table of its own, so a corrupt snapshot leaves nothing behind
+            MemorySegment snapshot = state.asSlice(HEADER_BYTES);
+            StationTable saved = new StationTable();
+            try {
+                if (StationSnapshot.merge(snapshot, saved) != snapshot.byteSize()) {
+                    return 0;
+                }
+            } catch (IllegalArgumentException e) {
+                return 0;
+            }
+            table.merge(saved);
+            return offset;
+        }
+    }
+
+    /**
+     * Writes the state to a temporary file first and moves it into place, so an interrupted
+     * run never leaves a partial state file behind.
+     */
+    private void save(long offset, int headLength, long headChecksum, StationTable table) throws IOException {
+        Path temp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try (Arena arena = Arena.ofConfined();
+             FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MemorySegment state = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_BYTES + StationSnapshot.byteSize(table), arena);
+            state.set(INT, 0, MAGIC);
+            state.set(INT, 4, VERSION);
+            state.set(LONG, 8, offset);
+            state.set(INT, 16, headLength);
+            state.set(INT, 20, 0);
+            state.set(LONG, 24, headChecksum);
+            StationSnapshot.write(table, state.asSlice(HEADER_BYTES));
+        }
+        Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,35 @@
+package brc;
+
+import java.util.Locale;
+
+/**
+ * How an engine that supports both reads its input file.
+ */
+public enum IoMode {
+
+    /**
+     * Map the whole file (see {@link MappedFile}); the workers read it through page faults.
+     */
+    MMAP,
+
+    /**
+     * Read the file with large positional reads on a dedicated I/O thread (see {@link PrefetchReader}).
+     */
+    PREFETCH;
+
+    /**
+     * System property used to pick the I/O mode.
+     */
+    public static final String IO_PROPERTY = "brc.io";
+
+    /**
+     * Returns the mode named by the {@value #IO_PROPERTY} system property, ignoring case, or
+     * {@link #MMAP} when the property is not set.
+     *
+     * @return the configured mode
+     * @throws IllegalArgumentException if the property names no mode
+     */
+    public static IoMode configured() {
+        return valueOf(System.getProperty(IO_PROPERTY, MMAP.name()).trim().toUpperCase(Locale.ROOT));
+    }
+}
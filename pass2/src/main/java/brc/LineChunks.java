@@ -0,0 +1,59 @@
+package brc;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Finds split points in a segment of newline-terminated records that only produce whole lines.
+ * <p>
+ * A split point is always moved forward to the first byte after the next {@code '\n'}, so a
+ * record is never cut in two and every worker owns the lines that start in its chunk.
+ * Offsets are {@code long}, so segments larger than 2 GB can be split.
+ */
+public final class LineChunks {
+
+    private LineChunks() {
+    }
+
+    /**
+     * Returns the start of the first line that begins at or after {@code position}.
+     *
+     * @param segment  the segment holding the records
+     * @param position the tentative split point
+     * @param limit    the end of the range being split
+     * @return the offset just after the next {@code '\n'} at or after {@code position - 1},
+     *         or {@code limit} if there is none
+     */
+    public static long nextLineStart(MemorySegment segment, long position, long limit) {
+        if (position <= 0) {
+            return 0;
+        }
+        for (long i = position - 1; i < limit; i++) {
+            if (segment.get(ValueLayout.JAVA_BYTE, i) == '\n') {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Splits {@code [start, end)} into {@code chunks} line-aligned ranges of similar size.
+     *
+     * @param segment the segment holding the records
+     * @param start   the start of the range, which must be the start of a line
+     * @param end     the end of the range
+     * @param chunks  the number of ranges wanted
+     * @return the boundaries; range {@code i} is {@code [bounds[i], bounds[i + 1])}.
+     *         Ranges may be empty when lines are longer than the chunk size.
+     */
+    public static long[] split(MemorySegment segment, long start, long end, int chunks) {
+        long[] bounds = new long[chunks + 1];
+        bounds[0] = start;
+        for (int i = 1; i < chunks; i++) {
+            long target = start + (end - start) / chunks * i;
+            bounds[i] = Math.max(bounds[i - 1], nextLineStart(segment, target, end));
+        }
+        bounds[chunks] = end;
+        return bounds;
+    }
+}
@@ -0,0 +1,29 @@
+package brc;
+
+/**
+ * Why a measurement line was rejected. The categories follow the broken lines seen in dirty feeds
+ * (see {@link MeasurementGenerator.Builder#malformedFraction(double)}).
+ */
+public enum LineError {
+
+    /**
+     * The line has no {@code ';'}, for example {@code Hamburg12.3} or an empty line.
+     */
+    MISSING_SEPARATOR,
+
+    /**
+     * Nothing but whitespace comes before the {@code ';'}, for example {@code ;12.3}.
+     */
+    MISSING_STATION,
+
+    /**
+     * Nothing but whitespace follows the {@code ';'}, for example {@code Hamburg;}.
+     */
+    MISSING_TEMPERATURE,
+
+    /**
+     * The text after the {@code ';'} is not a temperature in the input format, for example
+     * {@code Hamburg;N/A} or {@code Hamburg;123.45}.
+     */
+    BAD_TEMPERATURE
+}
@@ -0,0 +1,97 @@
+package brc;
+
+import java.lang.foreign.MemorySegment;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A {@link Spliterator} over the lines of a mapped file that splits at byte offsets.
+ * <p>
+ * {@code BufferedReader.lines()} is backed by an iterator, so a parallel stream over it can only
+ * split by copying batches of lines into arrays on one thread. This spliterator splits the byte
+ * range in half, moving the split point forward to the next line start, so every split is
+ * O(line length) and each half can be processed on its own core. It emits
+ * {@link MeasurementRecord} views instead of Strings.
+ * <p>
+ * The size is only estimated from an average line length, so the spliterator is not
+ * {@link #SIZED}.
+ */
+public final class LineSpliterator implements Spliterator<MeasurementRecord> {
+
+    private static final long AVERAGE_LINE_BYTES = 16;
+    private static final long MIN_SPLIT_BYTES = 64 * 1024;
+
+    private final MemorySegment segment;
+    private final DelimiterScanner scanner;
+    private final long end;
+    private long position;
+
+    /**
+     * @param segment  the segment holding the lines
+     * @param position the start of the first line
+     * @param end      the end of the range
+     * @param scanner  finds the delimiters
+     */
+    public LineSpliterator(MemorySegment segment, long position, long end, DelimiterScanner scanner) {
+        this.segment = segment;
+        this.position = position;
+        this.end = end;
+        this.scanner = scanner;
+    }
+
+    /**
+     * Streams the lines of the whole file. The stream must be consumed before the file is closed.
+     *
+     * @param file     the mapped file
+     * @param parallel whether the stream is parallel
+     * @return the records of the file
+     */
+    public static Stream<MeasurementRecord> records(MappedFile file, boolean parallel) {
+        return StreamSupport.stream(new LineSpliterator(file.segment(), 0, file.size(), DelimiterScanner.best()), parallel);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super MeasurementRecord> action) {
+        if (position >= end) {
+            return false;
+        }
+        long lineEnd = scanner.indexOf(segment, position, end, (byte) '\n');
+        long separator = scanner.indexOf(segment, position, lineEnd, (byte) ';');
+        action.accept(new MeasurementRecord(segment, position, separator, lineEnd));
+        position = lineEnd + 1;
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super MeasurementRecord> action) {
+        while (tryAdvance(action)) {
+            // keep going until the range is done
+        }
+    }
+
+    @Override
+    public Spliterator<MeasurementRecord> trySplit() {
+        if (end - position < MIN_SPLIT_BYTES) {
+            return null;
+        }
+        long mid = LineChunks.nextLineStart(segment, position + (end - position) / 2, end);
+        if (mid >= end) {
+            return null;
+        }
+        LineSpliterator prefix = new LineSpliterator(segment, position, mid, scanner);
+        position = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return (end - position + AVERAGE_LINE_BYTES - 1) / AVERAGE_LINE_BYTES;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+}
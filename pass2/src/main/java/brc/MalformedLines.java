@@ -0,0 +1,242 @@
+package brc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the lines an engine rejects, by {@link LineError category}, and optionally copies them
+ * to a quarantine file (see {@link QuarantineWriter}).
+ * <p>
+ * Engines report a line only once parsing it has already failed, so valid lines cost nothing
+ * extra; nothing is thrown or printed per line. One instance may be shared by all worker
+ * threads of a run.
+ * <p>
+ * A worker whose output may still be thrown away, such as a speculative run of a
+ * {@link GzipReader}, reports to a {@link #deferred()} instance instead, which holds its counts
+ * and lines until it is {@link #commit() committed}.
+ */
+public final class MalformedLines implements Closeable {
+
+    /**
+     * The most lines written to a quarantine file unless another limit is given.
+     */
+    public static final long DEFAULT_QUARANTINE_LINES = 10_000;
+
+    private final LongAdder[] counts = new LongAdder[LineError.values().length];
+    private final QuarantineWriter quarantine;
+    private final MalformedLines target;
+    private final List<byte[]> held;
+    private long heldDropped;
+
+    /**
+     * Creates an instance that only counts.
+     */
+    public MalformedLines() {
+        this((QuarantineWriter) null);
+    }
+
+    /**
+     * Creates an instance that also writes up to {@code maxLines} rejected lines to {@code file}.
+     *
+     * @param file     the quarantine file, created or truncated
+     * @param maxLines the most lines to write to it
+     * @throws IOException if the file cannot be created
+     */
+    public MalformedLines(Path file, long maxLines) throws IOException {
+        this(new QuarantineWriter(file, maxLines));
+    }
+
+    private MalformedLines(QuarantineWriter quarantine) {
+        this(quarantine, null);
+    }
+
+    private MalformedLines(QuarantineWriter quarantine, MalformedLines target) {
+        this.quarantine = quarantine;
+        this.target = target;
+        this.held = target != null && target.quarantine != null ? new ArrayList<>() : null;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Parses the temperature of a record, reporting the line if it is malformed. A line whose
+     * station name is blank is malformed too, whatever its temperature.
+     *
+     * @param record a line that is not a comment
+     * @return the temperature in tenths, or {@link TemperatureParser#INVALID} if the line is malformed
+     */
+    public int temperature(MeasurementRecord record) {
+        int temperature = record.temperature();
+        if (temperature == TemperatureParser.INVALID || Whitespace.isBlank(record.segment(), record.start(), record.separator())) {
+            report(record.segment(), record.start(), record.separator(), record.end());
+            return TemperatureParser.INVALID;
+        }
+        return temperature;
+    }
+
+    /**
+     * Classifies and reports a line that was rejected.
+     *
+     * @param segment   the segment holding the line
+     * @param start     the offset of the first byte of the line
+     * @param separator the offset of the first {@code ';'}, or {@code end} if the line has none
+     * @param end       the offset just after the last byte of the line, without the newline
+     */
+    public void report(MemorySegment segment, long start, long separator, long end) {
+        LineError error;
+        if (separator >= end) {
+            error = LineError.MISSING_SEPARATOR;
+        } else if (Whitespace.isBlank(segment, start, separator)) {
+            error = LineError.MISSING_STATION;
+        } else if (Whitespace.isBlank(segment, separator + 1, end)) {
+            error = LineError.MISSING_TEMPERATURE;
+        } else {
+            error = LineError.BAD_TEMPERATURE;
+        }
+        counts[error.ordinal()].increment();
+        if (quarantine != null || held != null) {
+            quarantine(segment.asSlice(start, end - start).toArray(ValueLayout.JAVA_BYTE));
+        }
+    }
+
+    /**
+     * Classifies and reports a line that was rejected.
+     *
+     * @param line the line, without the newline
+     */
+    public void report(String line) {
+        int separator = line.indexOf(';');
+        LineError error;
+        if (separator < 0) {
+            error = LineError.MISSING_SEPARATOR;
+        } else if (line.substring(0, separator).trim().isEmpty()) {
+            error = LineError.MISSING_STATION;
+        } else if (line.substring(separator + 1).trim().isEmpty()) {
+            error = LineError.MISSING_TEMPERATURE;
+        } else {
+            error = LineError.BAD_TEMPERATURE;
+        }
+        counts[error.ordinal()].increment();
+        if (quarantine != null || held != null) {
+            quarantine(line.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Creates an instance that holds what is reported to it until {@link #commit()} adds it to
+     * this one, so the reports of work that is discarded are never counted or quarantined. The
+     * instance is meant for a single thread.
+     *
+     * @return an empty deferred instance
+     */
+    public MalformedLines deferred() {
+        return new MalformedLines(null, this);
+    }
+
+    /**
+     * Adds the counts and lines of a {@link #deferred()} instance to the instance it was created
+     * from, and clears them. Does nothing on other instances.
+     */
+    public void commit() {
+        if (target == null) {
+            return;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            target.counts[i].add(counts[i].sumThenReset());
+        }
+        if (held != null) {
+            held.forEach(target.quarantine::offer);
+            target.quarantine.drop(heldDropped);
+            held.clear();
+            heldDropped = 0;
+        }
+    }
+
+    /**
+     * Adds lines that were counted elsewhere, such as in a {@link ShardWorker} process, without
+     * quarantining them.
+     *
+     * @param error a category
+     * @param count the number of lines to add to it
+     */
+    public void add(LineError error, long count) {
+        counts[error.ordinal()].add(count);
+    }
+
+    /**
+     * @param error a category
+     * @return the number of lines reported in that category
+     */
+    public long count(LineError error) {
+        return counts[error.ordinal()].sum();
+    }
+
+    /**
+     * @return the number of lines reported in all categories
+     */
+    public long total() {
+        long total = 0;
+        for (LongAdder count : counts) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    /**
+     * @return the number of reported lines missing from the quarantine file because it was full
+     */
+    public long dropped() {
+        return quarantine != null ? quarantine.dropped() : 0;
+    }
+
+    /**
+     * Finishes writing the quarantine file, if there is one.
+     *
+     * @throws IOException if a line could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (quarantine != null) {
+            quarantine.close();
+        }
+    }
+
+    /**
+     * Returns the counts in the format {@code missing_separator=1, missing_station=0, missing_temperature=0, bad_temperature=2}.
+     *
+     * @return the formatted counts
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (LineError error : LineError.values()) {
+            if (!result.isEmpty()) {
+                result.append(", ");
+            }
+            result.append(error.name().toLowerCase(Locale.ROOT)).append('=').append(count(error));
+        }
+        if (quarantine != null) {
+            result.append(", not_quarantined=").append(dropped());
+        }
+        return result.toString();
+    }
+
+    private void quarantine(byte[] line) {
+        if (quarantine != null) {
+            quarantine.offer(line);
+        } else if (held.size() < target.quarantine.maxLines()) {
+            held.add(line);
+        } else {
+            heldDropped++; // Past the size of the file, so it would be dropped on commit anyway
+        }
+    }
+}
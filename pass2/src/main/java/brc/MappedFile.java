@@ -0,0 +1,94 @@
+package brc;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A whole file mapped read-only as a single {@link MemorySegment}.
+ * <p>
+ * Unlike {@link FileChannel#map(FileChannel.MapMode, long, long)} returning a
+ * {@link java.nio.MappedByteBuffer}, the mapping is not limited to {@link Integer#MAX_VALUE}
+ * bytes, so a full 1B-row file (about 13 GB) is one segment addressed with {@code long} offsets.
+ * <p>
+ * The mapping is owned by a shared {@link Arena}: slices can be read from any thread and
+ * all of them become inaccessible once the file is {@link #close() closed}.
+ */
+public final class MappedFile implements AutoCloseable {
+
+    private final Arena arena;
+    private final MemorySegment segment;
+
+    private MappedFile(Arena arena, MemorySegment segment) {
+        this.arena = arena;
+        this.segment = segment;
+    }
+
+    /**
+     * Maps the whole file.
+     *
+     * @param file the file to map
+     * @return the mapped file
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static MappedFile open(Path file) throws IOException {
+        Arena arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new MappedFile(arena, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena));
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the segment covering the whole file
+     */
+    public MemorySegment segment() {
+        return segment;
+    }
+
+    /**
+     * @return the file size in bytes
+     */
+    public long size() {
+        return segment.byteSize();
+    }
+
+    /**
+     * Returns the bytes {@code [offset, offset + length)} of the file.
+     *
+     * @param offset the offset of the slice
+     * @param length the length of the slice
+     * @return a slice sharing the mapping of this file
+     */
+    public MemorySegment slice(long offset, long length) {
+        return segment.asSlice(offset, length);
+    }
+
+    /**
+     * Splits the file into {@code chunks} slices that each start and end on a line boundary.
+     *
+     * @param chunks the number of slices wanted
+     * @return the slices in file order; some may be empty for very small files
+     */
+    public MemorySegment[] split(int chunks) {
+        long[] bounds = LineChunks.split(segment, 0, size(), chunks);
+        MemorySegment[] slices = new MemorySegment[chunks];
+        for (int i = 0; i < chunks; i++) {
+            slices[i] = slice(bounds[i], bounds[i + 1] - bounds[i]);
+        }
+        return slices;
+    }
+
+    /**
+     * Unmaps the file.
+     */
+    @Override
+    public void close() {
+        arena.close();
+    }
+}
@@ -0,0 +1,394 @@
+package brc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes reproducible measurement files in the {@code Station;12.3} format.
+ * <p>
+ * The output only depends on the settings and the seed, never on the number of threads.
+ * Rows are generated in fixed-size blocks, each with its own random stream derived from
+ * the seed. A first parallel pass computes the byte length of every block, the file is then
+ * preallocated to its exact size and a second parallel pass writes each block at its final
+ * offset with positional {@link FileChannel} writes.
+ * <p>
+ * Usage: {@code java brc.MeasurementGenerator <output_file> <rows> [--seed=n] [--stations=n]
+ * [--name-length=min-max] [--name-distribution=uniform|normal|short] [--comments=fraction]
+ * [--malformed=fraction] [--threads=n]}
+ */
+public final class MeasurementGenerator {
+
+    /**
+     * How station name lengths (in UTF-8 bytes) are spread between the minimum and maximum.
+     */
+    public enum LengthDistribution {
+        UNIFORM, NORMAL, SHORT;
+
+        int pick(SplittableRandom random, int min, int max) {
+            return switch (this) {
+                case UNIFORM -> random.nextInt(min, max + 1);
+                case NORMAL -> clamp((min + max) / 2.0 + random.nextGaussian() * (max - min) / 6.0, min, max);
+                case SHORT -> clamp(min + (max - min) * Math.pow(random.nextDouble(), 3), min, max);
+            };
+        }
+
+        private static int clamp(double length, int min, int max) {
+            return (int) Math.max(min, Math.min(max, Math.round(length)));
+        }
+    }
+
+    public static final int MAX_STATIONS = 50_000;
+    public static final int MAX_NAME_LENGTH = 100;
+
+    private static final int BLOCK_ROWS = 1 << 18;
+    private static final byte[] COMMENT = "# generated measurements\n".getBytes(StandardCharsets.UTF_8);
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz";
+    private static final String ACCENTED = "éèüöäåñç";
+
+    private final long seed;
+    private final long rows;
+    private final double commentFraction;
+    private final double malformedFraction;
+    private final int threads;
+    private final byte[][] names;
+    private final double[] means;
+
+    private MeasurementGenerator(Builder builder) {
+        this.seed = builder.seed;
+        this.rows = builder.rows;
+        this.commentFraction = builder.commentFraction;
+        this.malformedFraction = builder.malformedFraction;
+        this.threads = builder.threads;
+        this.names = new byte[builder.stations][];
+        this.means = new double[builder.stations];
+
+        SplittableRandom random = new SplittableRandom(seed);
+        Set<String> used = new HashSet<>();
+        for (int i = 0; i < names.length; i++) {
+            String name;
+            do {
+                name = stationName(random, builder.distribution.pick(random, builder.minNameLength, builder.maxNameLength));
+            } while (!used.add(name));
+            names[i] = name.getBytes(StandardCharsets.UTF_8);
+            means[i] = random.nextDouble(-30, 40);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Generates the file, replacing it if it exists.
+     *
+     * @param file the file to write
+     * @return the number of bytes written
+     * @throws IOException if the file cannot be written
+     */
+    public long generate(Path file) throws IOException {
+        int blocks = (int) ((rows + BLOCK_ROWS - 1) / BLOCK_ROWS);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            // Pass 1: the size of every block, so each one can be written at its final offset
+            List<Future<Integer>> sizes = new ArrayList<>(blocks);
+            for (int block = 0; block < blocks; block++) {
+                int b = block;
+                sizes.add(executor.submit(() -> generateBlock(b, null)));
+            }
+            long[] offsets = new long[blocks + 1];
+            for (int block = 0; block < blocks; block++) {
+                offsets[block + 1] = offsets[block] + sizes.get(block).get();
+            }
+            long size = offsets[blocks];
+            if (size > 0) {
+                channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+            }
+
+            // Pass 2: render and write the blocks in parallel
+            ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(0));
+            List<Future<?>> writes = new ArrayList<>(blocks);
+            for (int block = 0; block < blocks; block++) {
+                int b = block;
+                writes.add(executor.submit(() -> {
+                    int length = (int) (offsets[b + 1] - offsets[b]);
+                    ByteBuffer buffer = buffers.get();
+                    if (buffer.capacity() < length) {
+                        buffer = ByteBuffer.allocateDirect(length);
+                        buffers.set(buffer);
+                    }
+                    buffer.clear().limit(length);
+                    generateBlock(b, buffer);
+                    buffer.flip();
+                    long position = offsets[b];
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> write : writes) {
+                write.get();
+            }
+            return size;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating " + file, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Failed to generate " + file, e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Generates one block of rows. With a {@code null} buffer only the byte length is computed;
+     * both modes consume the random stream identically.
+     */
+    private int generateBlock(int block, ByteBuffer out) {
+        SplittableRandom random = new SplittableRandom(seed ^ (0x9E3779B97F4A7C15L * (block + 1)));
+        long first = (long) block * BLOCK_ROWS;
+        int count = (int) Math.min(BLOCK_ROWS, rows - first);
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            double kind = random.nextDouble();
+            if (kind < commentFraction) {
+                length += COMMENT.length;
+                if (out != null) {
+                    out.put(COMMENT);
+                }
+                continue;
+            }
+            int station = random.nextInt(names.length);
+            byte[] name = names[station];
+            int tenths = (int) Math.round((means[station] + random.nextGaussian() * 10) * 10);
+            tenths = Math.max(-999, Math.min(999, tenths));
+            if (kind < commentFraction + malformedFraction) {
+                length += malformed(random.nextInt(4), name, tenths, out);
+            } else {
+                length += name.length + 1 + temperatureLength(tenths) + 1;
+                if (out != null) {
+                    out.put(name).put((byte) ';');
+                    putTemperature(out, tenths);
+                    out.put((byte) '\n');
+                }
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Writes one of the broken line shapes seen in dirty feeds.
+     */
+    private static int malformed(int shape, byte[] name, int tenths, ByteBuffer out) {
+        switch (shape) {
+            case 0: // no separator
+                if (out != null) {
+                    out.put(name);
+                    putTemperature(out, tenths);
+                    out.put((byte) '\n');
+                }
+                return name.length + temperatureLength(tenths) + 1;
+            case 1: // no temperature
+                if (out != null) {
+                    out.put(name).put((byte) ';').put((byte) '\n');
+                }
+                return name.length + 2;
+            case 2: // no station name
+                if (out != null) {
+                    out.put((byte) ';');
+                    putTemperature(out, tenths);
+                    out.put((byte) '\n');
+                }
+                return temperatureLength(tenths) + 2;
+            default: // not a number
+                if (out != null) {
+                    out.put(name).put((byte) ';').put((byte) 'N').put((byte) '/').put((byte) 'A').put((byte) '\n');
+                }
+                return name.length + 5;
+        }
+    }
+
+    private static int temperatureLength(int tenths) {
+        int abs = Math.abs(tenths);
+        return (tenths < 0 ? 1 : 0) + (abs >= 100 ? 4 : 3);
+    }
+
+    private static void putTemperature(ByteBuffer out, int tenths) {
+        if (tenths < 0) {
+            out.put((byte) '-');
+            tenths = -tenths;
+        }
+        if (tenths >= 100) {
+            out.put((byte) ('0' + tenths / 100));
+        }
+        out.put((byte) ('0' + tenths / 10 % 10)).put((byte) '.').put((byte) ('0' + tenths % 10));
+    }
+
+    /**
+     * Builds a station name of exactly {@code length} UTF-8 bytes, occasionally using
+     * two-byte characters and spaces, never starting with {@code #} or containing {@code ;}.
+     */
+    private static String stationName(SplittableRandom random, int length) {
+        StringBuilder name = new StringBuilder(length);
+        name.append(Character.toUpperCase(ALPHABET.charAt(random.nextInt(ALPHABET.length()))));
+        int bytes = 1;
+        while (bytes < length) {
+            int r = random.nextInt(20);
+            if (r == 0 && bytes + 2 <= length) {
+                name.append(ACCENTED.charAt(random.nextInt(ACCENTED.length())));
+                bytes += 2;
+            } else if (r == 1 && bytes + 1 < length && name.charAt(name.length() - 1) != ' ') {
+                name.append(' ');
+                bytes++;
+            } else {
+                name.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+                bytes++;
+            }
+        }
+        return name.toString();
+    }
+
+    /**
+     * Settings for a {@link MeasurementGenerator}.
+     */
+    public static final class Builder {
+        private long seed = 42;
+        private long rows = 1_000_000;
+        private int stations = 413;
+        private int minNameLength = 3;
+        private int maxNameLength = 24;
+        private LengthDistribution distribution = LengthDistribution.UNIFORM;
+        private double commentFraction = 0.001;
+        private double malformedFraction;
+        private int threads = Runtime.getRuntime().availableProcessors();
+
+        private Builder() {
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * @param rows the total number of lines, including comment and malformed lines
+         */
+        public Builder rows(long rows) {
+            if (rows < 0) {
+                throw new IllegalArgumentException("rows must not be negative: " + rows);
+            }
+            this.rows = rows;
+            return this;
+        }
+
+        public Builder stations(int stations) {
+            if (stations < 1 || stations > MAX_STATIONS) {
+                throw new IllegalArgumentException("stations must be between 1 and " + MAX_STATIONS + ": " + stations);
+            }
+            this.stations = stations;
+            return this;
+        }
+
+        /**
+         * @param min the shortest station name in UTF-8 bytes
+         * @param max the longest station name in UTF-8 bytes
+         */
+        public Builder nameLength(int min, int max) {
+            if (min < 1 || max > MAX_NAME_LENGTH || min > max) {
+                throw new IllegalArgumentException("name length must be within 1.." + MAX_NAME_LENGTH + ": " + min + "-" + max);
+            }
+            this.minNameLength = min;
+            this.maxNameLength = max;
+            return this;
+        }
+
+        public Builder nameLengthDistribution(LengthDistribution distribution) {
+            this.distribution = distribution;
+            return this;
+        }
+
+        public Builder commentFraction(double fraction) {
+            this.commentFraction = fraction(fraction);
+            return this;
+        }
+
+        public Builder malformedFraction(double fraction) {
+            this.malformedFraction = fraction(fraction);
+            return this;
+        }
+
+        public Builder threads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("threads must be positive: " + threads);
+            }
+            this.threads = threads;
+            return this;
+        }
+
+        public MeasurementGenerator build() {
+            if (commentFraction + malformedFraction > 1) {
+                throw new IllegalArgumentException("comment and malformed fractions add up to more than 1");
+            }
+            if (stations > Math.pow(ALPHABET.length(), maxNameLength) / 2) {
+                throw new IllegalArgumentException("too few distinct names of up to " + maxNameLength + " bytes for " + stations + " stations");
+            }
+            return new MeasurementGenerator(this);
+        }
+
+        private static double fraction(double fraction) {
+            if (fraction < 0 || fraction > 1) {
+                throw new IllegalArgumentException("fraction must be between 0 and 1: " + fraction);
+            }
+            return fraction;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java brc.MeasurementGenerator <output_file> <rows> [--seed=n] [--stations=n]"
+                    + " [--name-length=min-max] [--name-distribution=uniform|normal|short]"
+                    + " [--comments=fraction] [--malformed=fraction] [--threads=n]");
+            System.exit(1);
+        }
+        Builder builder = builder().rows(Long.parseLong(args[1].replace("_", "")));
+        for (int i = 2; i < args.length; i++) {
+            String[] option = args[i].split("=", 2);
+            String value = option.length == 2 ? option[1] : "";
+            switch (option[0]) {
+                case "--seed" -> builder.seed(Long.parseLong(value));
+                case "--stations" -> builder.stations(Integer.parseInt(value));
+                case "--name-length" -> {
+                    String[] range = value.split("-", 2);
+                    builder.nameLength(Integer.parseInt(range[0]), Integer.parseInt(range[range.length - 1]));
+                }
+                case "--name-distribution" -> builder.nameLengthDistribution(LengthDistribution.valueOf(value.toUpperCase()));
+                case "--comments" -> builder.commentFraction(Double.parseDouble(value));
+                case "--malformed" -> builder.malformedFraction(Double.parseDouble(value));
+                case "--threads" -> builder.threads(Integer.parseInt(value));
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        long start = System.nanoTime();
+        long bytes = builder.build().generate(Path.of(args[0]));
+        System.out.printf("Wrote %,d bytes to %s in %.1f s%n", bytes, args[0], (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,64 @@
+package brc;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A view of one line of a mapped measurements file, as emitted by {@link LineSpliterator}.
+ * <p>
+ * The record only holds offsets into the mapping; nothing is decoded until {@link #station()}
+ * or {@link #temperature()} is called. It must not be used after the file is closed.
+ *
+ * @param segment   the mapped file
+ * @param start     the offset of the first byte of the line
+ * @param separator the offset of the first {@code ';'}, or {@code end} if the line has none
+ * @param end       the offset of the terminating {@code '\n'}, or of the end of the file
+ */
+public record MeasurementRecord(MemorySegment segment, long start, long separator, long end) {
+
+    /**
+     * @return true if the line starts with {@code '#'}
+     */
+    public boolean isComment() {
+        return start < end && segment.get(ValueLayout.JAVA_BYTE, start) == '#';
+    }
+
+    /**
+     * @return true if the line contains a {@code ';'}
+     */
+    public boolean hasSeparator() {
+        return separator < end;
+    }
+
+    /**
+     * @return the text before the separator, or the whole line if there is none
+     */
+    public String station() {
+        return decode(start, separator);
+    }
+
+    /**
+     * Parses the text after the separator, ignoring surrounding whitespace.
+     *
+     * @return the temperature in tenths, or {@link TemperatureParser#INVALID}
+     */
+    public int temperature() {
+        if (!hasSeparator()) {
+            return TemperatureParser.INVALID;
+        }
+        long from = Whitespace.skip(segment, separator + 1, end);
+        return TemperatureParser.parse(segment, from, Whitespace.trim(segment, from, end));
+    }
+
+    /**
+     * @return the whole line, without the terminating newline
+     */
+    public String line() {
+        return decode(start, end);
+    }
+
+    private String decode(long from, long to) {
+        return new String(segment.asSlice(from, to - from).toArray(ValueLayout.JAVA_BYTE), StandardCharsets.UTF_8);
+    }
+}
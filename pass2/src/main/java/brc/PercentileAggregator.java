@@ -0,0 +1,86 @@
+package brc;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Aggregates a measurements file into a {@link StationDistribution} per station, for reports
+ * that need percentiles and medians as well as min/mean/max.
+ * <p>
+ * The file is mapped and processed by {@link ChunkScheduler} workers. Each worker looks stations
+ * up in its own {@link StationTable} and keeps one {@link TemperatureHistogram} per station.
+ * A histogram only holds the range of temperatures its station has seen, so memory is at most
+ * 8 KB per station and worker, and for typical stations spanning a few tens of degrees 1 to
+ * 4 KB, whatever the number of rows. Names and temperatures are trimmed like the
+ * {@code chatgpt_v1} engine does.
+ */
+public final class PercentileAggregator {
+
+    private final DelimiterScanner scanner = DelimiterScanner.best();
+
+    /**
+     * @param file the measurements file to read
+     * @return the distribution per station, sorted by station name
+     * @throws IOException if the file cannot be read
+     */
+    public SortedMap<String, StationDistribution> aggregate(Path file) throws IOException {
+        try (MappedFile mapped = MappedFile.open(file)) {
+            MemorySegment segment = mapped.segment();
+            List<Worker> workers = ChunkScheduler.run(segment, Runtime.getRuntime().availableProcessors(),
+                    ChunkScheduler.DEFAULT_CHUNK_SIZE, () -> new Worker(segment, scanner), Worker::process);
+
+            SortedMap<String, StationDistribution> result = new TreeMap<>();
+            for (Worker worker : workers) {
+                for (int i = 0; i < worker.table.size(); i++) {
+                    int entry = worker.table.entryAt(i);
+                    String name = worker.table.name(entry);
+                    result.merge(name, worker.distributions.get(worker.table.index(entry)), StationDistribution::merge);
+                }
+            }
+            return result;
+        }
+    }
+
+    private static final class Worker {
+        private final MemorySegment segment;
+        private final DelimiterScanner scanner;
+        private final StationTable table = new StationTable();
+        private final List<StationDistribution> distributions = new ArrayList<>();
+
+        Worker(MemorySegment segment, DelimiterScanner scanner) {
+            this.segment = segment;
+            this.scanner = scanner;
+        }
+
+        void process(long start, long end) {
+            scanner.forEachLine(segment, start, end, (lineStart, separator, lineEnd) -> {
+                if (separator < lineEnd && segment.get(ValueLayout.JAVA_BYTE, lineStart) != '#') {
+                    add(lineStart, separator, lineEnd);
+                }
+            });
+        }
+
+        private void add(long lineStart, long separator, long lineEnd) {
+            int temperature = TemperatureParser.parse(segment, Whitespace.skip(segment, separator + 1, lineEnd), Whitespace.trim(segment, separator + 1, lineEnd));
+            if (temperature == TemperatureParser.INVALID) {
+                return;
+            }
+            long nameStart = Whitespace.skip(segment, lineStart, separator);
+            int length = (int) (Whitespace.trim(segment, nameStart, separator) - nameStart);
+            if (length == 0) {
+                return;
+            }
+            int index = table.index(table.entry(segment, nameStart, length, StationTable.hash(segment, nameStart, length)));
+            if (index == distributions.size()) {
+                distributions.add(new StationDistribution());
+            }
+            distributions.get(index).add(temperature);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package brc;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Reads a file with large positional {@link FileChannel} reads instead of mapping it, and hands
+ * the lines to a fixed set of worker threads.
+ * <p>
+ * The calling thread does nothing but I/O: it fills a small pool of direct buffers in file order
+ * and queues each full buffer for the workers, so parsing overlaps with the next reads and no
+ * worker ever waits on a page fault. That suits storage where mmap performs badly, such as
+ * network-mounted volumes. Every buffer handed out ends after a {@code '\n'}; the partial line at
+ * the end of a read is carried over to the start of the next buffer. Workers return buffers to
+ * the pool once they are processed, so memory stays at {@code workers + 2} buffers whatever the
+ * size of the file.
+ * <p>
+ * The bytes can also come from another source, such as a {@link GzipStream} inflating a
+ * compressed file, in which case the calling thread decompresses while the workers parse.
+ * <p>
+ * Buffers are processed in no particular order, which is fine for aggregation into per-worker
+ * state. Anything a worker keeps from a buffer, such as a station name, must be copied.
+ */
+public final class PrefetchReader {
+
+    /**
+     * Default buffer size: large reads amortise the cost of each system call.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8 << 20;
+
+    /**
+     * Processes whole lines held in a pooled buffer into a worker's private state.
+     *
+     * @param <W> the type of the worker state
+     */
+    @FunctionalInterface
+    public interface BufferProcessor<W> {
+        void process(W worker, MemorySegment lines);
+    }
+
+    /**
+     * Produces the bytes to process, in order, for example from a file or a decompressor.
+     */
+    @FunctionalInterface
+    interface Source {
+
+        /**
+         * Reads bytes into the remaining space of {@code target}.
+         *
+         * @param target the buffer to fill
+         * @return the number of bytes read, or -1 at the end of the input
+         * @throws IOException if the input cannot be read
+         */
+        int read(ByteBuffer target) throws IOException;
+    }
+
+    private record Filled(MemorySegment buffer, long length) {
+    }
+
+    private static final Filled END = new Filled(MemorySegment.NULL, 0);
+
+    private PrefetchReader() {
+    }
+
+    /**
+     * Reads the file on the calling thread and processes it on {@code workers} threads, returning
+     * their states once all are done.
+     *
+     * @param file       the newline-terminated records to process
+     * @param workers    the number of worker threads
+     * @param bufferSize the size of each read, which must exceed the longest line
+     * @param state      creates the private state of each worker
+     * @param processor  processes the lines of one buffer into a worker state
+     * @param <W>        the type of the worker state
+     * @return the worker states, one per thread, ready to be merged
+     * @throws IOException if the file cannot be read, or has a line longer than a buffer
+     */
+    public static <W> List<W> run(Path file, int workers, int bufferSize,
+                                  Supplier<W> state, BufferProcessor<W> processor) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] position = {0};
+            return run(target -> {
+                int read = channel.read(target, position[0]);
+                if (read > 0) {
+                    position[0] += read;
+                }
+                return read;
+            }, workers, bufferSize, state, processor);
+        }
+    }
+
+    /**
+     * Reads the source on the calling thread and processes it on {@code workers} threads,
+     * returning their states once all are done.
+     *
+     * @param source     the newline-terminated records to process
+     * @param workers    the number of worker threads
+     * @param bufferSize the size of each buffer, which must exceed the longest line
+     * @param state      creates the private state of each worker
+     * @param processor  processes the lines of one buffer into a worker state
+     * @param <W>        the type of the worker state
+     * @return the worker states, one per thread, ready to be merged
+     * @throws IOException if the source cannot be read, or has a line longer than a buffer
+     */
+    static <W> List<W> run(Source source, int workers, int bufferSize,
+                           Supplier<W> state, BufferProcessor<W> processor) throws IOException {
+        int buffers = workers + 2;
+        BlockingQueue<MemorySegment> free = new ArrayBlockingQueue<>(buffers);
+        BlockingQueue<Filled> full = new ArrayBlockingQueue<>(buffers + workers);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<W> states = new ArrayList<>(workers);
+        List<Thread> threads = new ArrayList<>(workers);
+
+        for (int i = 0; i < buffers; i++) {
+            free.add(MemorySegment.ofBuffer(ByteBuffer.allocateDirect(bufferSize)));
+        }
+
+        for (int i = 0; i < workers; i++) {
+            W worker = state.get();
+            states.add(worker);
+            threads.add(Thread.ofPlatform().name("brc-worker-" + i).start(() -> {
+                try {
+                    for (Filled filled = full.take(); filled != END; filled = full.take()) {
+                        // After a failure buffers are still recycled, so the reader never blocks
+                        if (failure.get() == null) {
+                            try {
+                                processor.process(worker, filled.buffer().asSlice(0, filled.length()));
+                            } catch (Throwable t) {
+                                failure.compareAndSet(null, t);
+                            }
+                        }
+                        free.add(filled.buffer());
+                    }
+                } catch (InterruptedException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+
+        try {
+            read(source, free, full, failure);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, new InterruptedIOException("Interrupted while reading"));
+        } catch (IOException | RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            for (int i = 0; i < workers; i++) {
+                full.add(END);
+            }
+            for (Thread thread : threads) {
+                join(thread);
+            }
+        }
+
+        Throwable t = failure.get();
+        if (t instanceof IOException e) {
+            throw e;
+        }
+        if (t instanceof RuntimeException e) {
+            throw e;
+        }
+        if (t instanceof Error e) {
+            throw e;
+        }
+        if (t != null) {
+            throw new IllegalStateException("Buffer processing was interrupted", t);
+        }
+        return states;
+    }
+
+    /**
+     * Fills free buffers in file order and queues each one up to its last {@code '\n'}, moving
+     * the rest of the read to the start of the next buffer.
+     */
+    private static void read(Source source, BlockingQueue<MemorySegment> free,
+                             BlockingQueue<Filled> full, AtomicReference<Throwable> failure)
+            throws IOException, InterruptedException {
+        long position = 0;
+        long carried = 0;
+        boolean end = false;
+        MemorySegment current = free.take();
+        while (failure.get() == null) {
+            ByteBuffer target = current.asByteBuffer().position((int) carried);
+            while (target.hasRemaining()) {
+                int read = source.read(target);
+                if (read < 0) {
+                    end = true;
+                    break;
+                }
+                position += read;
+            }
+            long length = target.position();
+            if (end) {
+                if (length > 0) {
+                    full.put(new Filled(current, length));
+                }
+                return;
+            }
+
+            long lineEnd = lastLineEnd(current, length);
+            if (lineEnd == 0) {
+                throw new IOException("Line longer than the " + current.byteSize()
+                        + "-byte read buffer at offset " + (position - length));
+            }
+            MemorySegment next = free.take();
+            carried = length - lineEnd;
+            MemorySegment.copy(current, lineEnd, next, 0, carried);
+            full.put(new Filled(current, lineEnd));
+            current = next;
+        }
+    }
+
+    /**
+     * Returns the offset just after the last {@code '\n'} in the first {@code length} bytes of the
+     * buffer, or 0 if there is none.
+     */
+    private static long lastLineEnd(MemorySegment buffer, long length) {
+        for (long i = length - 1; i >= 0; i--) {
+            if (buffer.get(ValueLayout.JAVA_BYTE, i) == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Waits for a worker even when interrupted: the buffers it reads are freed afterwards.
+     */
+    private static void join(Thread thread) {
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
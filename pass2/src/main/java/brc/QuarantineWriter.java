@@ -0,0 +1,137 @@
+package brc;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Copies rejected lines, byte for byte, to a quarantine file on a background thread.
+ * <p>
+ * Parser threads only copy the line and offer it to a bounded queue; they never wait for the
+ * disk. The file is bounded as well: once {@code maxLines} lines have been queued, or whenever
+ * the queue is full, further lines are counted as dropped instead of written. A line dropped
+ * because the queue was full does not use up the limit.
+ */
+final class QuarantineWriter {
+
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final byte[] END = new byte[0];
+
+    private final BlockingQueue<byte[]> queue;
+    private final AtomicLong accepted = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final long maxLines;
+    private final OutputStream out;
+    private final Thread thread;
+    private volatile IOException failure;
+
+    /**
+     * Creates or truncates the file and starts the writer thread.
+     *
+     * @param file     the quarantine file
+     * @param maxLines the most lines to write to it
+     * @throws IOException if the file cannot be created
+     */
+    QuarantineWriter(Path file, long maxLines) throws IOException {
+        this(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16), maxLines, QUEUE_CAPACITY);
+    }
+
+    /**
+     * Starts the writer thread on a stream, which is closed by {@link #close()}.
+     *
+     * @param out           the stream the lines are written to
+     * @param maxLines      the most lines to write to it
+     * @param queueCapacity the most lines waiting to be written
+     */
+    QuarantineWriter(OutputStream out, long maxLines, int queueCapacity) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxLines = maxLines;
+        this.out = out;
+        this.thread = Thread.ofPlatform().name("brc-quarantine").daemon().start(this::drain);
+    }
+
+    /**
+     * Queues a copy of one line, without its newline, unless the file or the queue is full.
+     *
+     * @param line the line
+     */
+    void offer(byte[] line) {
+        if (accepted.get() >= maxLines) {
+            dropped.increment();
+        } else if (accepted.incrementAndGet() > maxLines || !queue.offer(line)) {
+            accepted.decrementAndGet(); // Only lines that were queued count against the limit
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Counts lines that were never offered as dropped.
+     *
+     * @param lines the number of lines
+     */
+    void drop(long lines) {
+        dropped.add(lines);
+    }
+
+    /**
+     * @return the most lines written to the file
+     */
+    long maxLines() {
+        return maxLines;
+    }
+
+    /**
+     * @return the number of lines that were not written because the file or the queue was full
+     */
+    long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Writes the queued lines, stops the writer thread and closes the file.
+     *
+     * @throws IOException if a line could not be written
+     */
+    void close() throws IOException {
+        try {
+            queue.put(END);
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing the quarantine file");
+        } finally {
+            out.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void drain() {
+        try {
+            for (byte[] line = queue.take(); line != END; line = queue.take()) {
+                if (failure == null) {
+                    write(line);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(byte[] line) {
+        try {
+            out.write(line);
+            out.write('\n');
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+}
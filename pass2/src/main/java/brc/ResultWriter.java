@@ -0,0 +1,181 @@
+package brc;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Map;
+
+/**
+ * Writes results in the standard {@code {Station=min/mean/max, ...}} format straight to a channel.
+ * <p>
+ * Temperatures are rendered from their integer tenths and station names are encoded to UTF-8 by
+ * hand, all into one reusable direct {@link ByteBuffer}, so writing a result creates no
+ * {@code String}, {@code Formatter} or boxed value per station. The whole result is then written
+ * with a single channel write instead of one {@code println} per station. The buffer only grows,
+ * and {@link #stdout()} always returns the same writer, so repeated results reuse it. Writes are
+ * synchronized, as they share the buffer.
+ * <p>
+ * A {@link StationTable} is written without decoding its names at all: the stations are sorted by
+ * their UTF-8 bytes (see {@link Utf8Order}) and the bytes are copied to the output as they are.
+ */
+public final class ResultWriter {
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private final WritableByteChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(INITIAL_CAPACITY);
+    private MemorySegment bufferSegment = MemorySegment.ofBuffer(buffer);
+
+    /**
+     * @param channel the channel to write to; it is not closed by this writer
+     */
+    public ResultWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Created on first use, so the channel and buffer are shared by every result written to the
+     * standard output.
+     */
+    private static final class Stdout {
+        static final ResultWriter WRITER = new ResultWriter(new FileOutputStream(FileDescriptor.out).getChannel());
+    }
+
+    /**
+     * Returns the writer to the channel of the standard output, the same one on every call.
+     * Anything already printed through {@link System#out} is flushed first so it is not overtaken.
+     *
+     * @return the writer to standard output
+     */
+    public static ResultWriter stdout() {
+        System.out.flush();
+        return Stdout.WRITER;
+    }
+
+    /**
+     * Writes the results followed by a newline.
+     *
+     * @param results the statistics per station, in the order they should be printed
+     * @throws IOException if the channel cannot be written
+     */
+    public synchronized void write(Map<String, StationStats> results) throws IOException {
+        buffer.clear();
+        buffer.put((byte) '{');
+        boolean first = true;
+        for (Map.Entry<String, StationStats> entry : results.entrySet()) {
+            String name = entry.getKey();
+            // At most 3 bytes per char, plus the separators and three temperatures
+            ensureRemaining(name.length() * 3 + 64);
+            if (!first) {
+                buffer.put((byte) ',').put((byte) ' ');
+            }
+            first = false;
+            putUtf8(name);
+            StationStats stats = entry.getValue();
+            buffer.put((byte) '=');
+            putTenths(stats.minTenths());
+            buffer.put((byte) '/');
+            putTenths(stats.meanTenths());
+            buffer.put((byte) '/');
+            putTenths(stats.maxTenths());
+        }
+        ensureRemaining(2);
+        buffer.put((byte) '}').put((byte) '\n');
+        flush();
+    }
+
+    /**
+     * Writes the stations of the table, sorted by name, followed by a newline.
+     *
+     * @param table the statistics per station
+     * @throws IOException if the channel cannot be written
+     */
+    public synchronized void write(StationTable table) throws IOException {
+        buffer.clear();
+        buffer.put((byte) '{');
+        int[] entries = table.sortedEntries();
+        for (int i = 0; i < entries.length; i++) {
+            int entry = entries[i];
+            MemorySegment name = table.key(entry);
+            ensureRemaining((int) name.byteSize() + 64);
+            if (i > 0) {
+                buffer.put((byte) ',').put((byte) ' ');
+            }
+            MemorySegment.copy(name, 0, bufferSegment, buffer.position(), name.byteSize());
+            buffer.position(buffer.position() + (int) name.byteSize());
+            buffer.put((byte) '=');
+            putTenths(table.min(entry));
+            buffer.put((byte) '/');
+            putTenths(StationStats.meanTenths(table.sum(entry), table.count(entry)));
+            buffer.put((byte) '/');
+            putTenths(table.max(entry));
+        }
+        ensureRemaining(2);
+        buffer.put((byte) '}').put((byte) '\n');
+        flush();
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void ensureRemaining(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            buffer = larger.put(buffer);
+            bufferSegment = MemorySegment.ofBuffer(larger.duplicate().clear());
+        }
+    }
+
+    /**
+     * Puts a value in tenths with exactly one decimal, for example {@code -123} as {@code -12.3}.
+     */
+    private void putTenths(long tenths) {
+        if (tenths < 0) {
+            buffer.put((byte) '-');
+            tenths = -tenths;
+        }
+        long whole = tenths / 10;
+        if (whole >= 10) {
+            putDigits(whole / 10);
+        }
+        buffer.put((byte) ('0' + whole % 10))
+                .put((byte) '.')
+                .put((byte) ('0' + tenths % 10));
+    }
+
+    private void putDigits(long value) {
+        if (value >= 10) {
+            putDigits(value / 10);
+        }
+        buffer.put((byte) ('0' + value % 10));
+    }
+
+    private void putUtf8(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < name.length() && Character.isLowSurrogate(name.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, name.charAt(++i));
+                buffer.put((byte) (0xF0 | codePoint >> 18))
+                        .put((byte) (0x80 | codePoint >> 12 & 0x3F))
+                        .put((byte) (0x80 | codePoint >> 6 & 0x3F))
+                        .put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?'); // unpaired surrogate, as String.getBytes would write it
+            } else {
+                buffer.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package brc;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.nio.file.Path;
+
+/**
+ * An aggregator that can process any range of whole lines held in memory, not only whole files.
+ * <p>
+ * This is what {@link IncrementalAggregator} needs to process only the bytes appended to a file
+ * since the previous run.
+ */
+@FunctionalInterface
+public interface SegmentAggregator {
+
+    /**
+     * Aggregates the lines of the segment. The segment must start at the start of a line and
+     * end just after a {@code '\n'}, or at the end of the file.
+     *
+     * @param lines the lines to aggregate
+     * @return the statistics per station
+     */
+    StationTable aggregate(MemorySegment lines);
+
+    /**
+     * Aggregates a whole file. By default the file is mapped and passed to
+     * {@link #aggregate(MemorySegment)}; implementations that read gzip-compressed files override
+     * this, as inflating in parallel needs state per worker (see {@link GzipReader}).
+     *
+     * @param file the measurements file to read
+     * @return the statistics per station
+     * @throws IOException if the file cannot be read, or is gzip-compressed
+     */
+    default StationTable aggregateTable(Path file) throws IOException {
+        if (GzipReader.isGzip(file)) {
+            throw new IOException("Gzip input is not supported by " + getClass().getSimpleName());
+        }
+        try (MappedFile mapped = MappedFile.open(file)) {
+            return aggregate(mapped.segment());
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package brc;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Stream;
+
+/**
+ * Aggregates a file with several worker JVMs on the local machine instead of threads in one.
+ * <p>
+ * With a single large heap, GC and safepoint pauses stop every worker thread at once. Here the
+ * file is split into line-aligned byte ranges, one {@link ShardWorker} process is started per
+ * range with the same {@code java} binary, class path and JVM options as this one, and each
+ * writes its {@link StationSnapshot} to a temporary file. Each snapshot is merged as soon as its
+ * worker exits, together with the counts of malformed lines the worker skipped. If any worker
+ * fails, the others are killed at once and the run fails; the temporary files are deleted once
+ * no worker is left running.
+ * <p>
+ * The workers share the available processors: each is started with
+ * {@code -XX:ActiveProcessorCount} set to its share, so an engine sizing its thread pool from
+ * {@link Runtime#availableProcessors()} does not oversubscribe the machine.
+ */
+public final class ShardCoordinator implements StationAggregator {
+
+    private final Engine engine;
+    private final int shards;
+    private final MalformedLines malformedLines;
+
+    /**
+     * Creates a coordinator that does not keep the counts of malformed lines.
+     *
+     * @param engine the engine each worker runs; it must be a {@link SegmentAggregator}
+     * @param shards the number of worker processes
+     * @throws IllegalArgumentException if the engine cannot aggregate a byte range
+     */
+    public ShardCoordinator(Engine engine, int shards) {
+        this(engine, shards, new MalformedLines());
+    }
+
+    /**
+     * @param engine         the engine each worker runs; it must be a {@link SegmentAggregator}
+     * @param shards         the number of worker processes
+     * @param malformedLines receives the counts of the malformed lines skipped by the workers; the
+     *                       lines themselves are not passed on, so they are never quarantined
+     * @throws IllegalArgumentException if the engine cannot aggregate a byte range
+     */
+    public ShardCoordinator(Engine engine, int shards, MalformedLines malformedLines) {
+        if (!(engine.create() instanceof SegmentAggregator)) {
+            throw new IllegalArgumentException("Engine " + engine.name().toLowerCase() + " cannot aggregate a byte range");
+        }
+        if (shards < 1) {
+            throw new IllegalArgumentException("At least one shard is needed");
+        }
+        this.engine = engine;
+        this.shards = shards;
+        this.malformedLines = malformedLines;
+    }
+
+    @Override
+    public SortedMap<String, StationStats> aggregate(Path file) throws IOException {
+        return aggregateTable(file).toSortedMap();
+    }
+
+    /**
+     * Like {@link #aggregate(Path)}, but returns the merged statistics as a table whose names
+     * are not decoded yet.
+     *
+     * @param file the measurements file to read
+     * @return the statistics per station
+     * @throws IOException if the file cannot be read or a worker fails
+     */
+    public StationTable aggregateTable(Path file) throws IOException {
+        long[] bounds;
+        try (MappedFile mapped = MappedFile.open(file)) {
+            bounds = LineChunks.split(mapped.segment(), 0, mapped.size(), shards);
+        }
+
+        Path directory = Files.createTempDirectory("brc-shards");
+        List<Process> workers = new ArrayList<>(shards);
+        StationTable result = new StationTable();
+        try {
+            BlockingQueue<Integer> exited = new LinkedBlockingQueue<>();
+            for (int i = 0; i < shards; i++) {
+                int shard = i;
+                Process worker = new ProcessBuilder(command(file, bounds[i], bounds[i + 1], snapshot(directory, i)))
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start();
+                workers.add(worker);
+                worker.onExit().thenRun(() -> exited.add(shard));
+            }
+
+            // Workers are taken in the order they exit, so any failure stops the run at once
+            for (int i = 0; i < shards; i++) {
+                int shard = take(exited);
+                int status = workers.get(shard).exitValue();
+                if (status != 0) {
+                    throw new IOException("Shard worker " + shard + " failed with exit status " + status);
+                }
+                result.merge(StationSnapshot.read(snapshot(directory, shard)));
+                ShardWorker.readMalformed(ShardWorker.malformedFile(snapshot(directory, shard)), malformedLines);
+            }
+        } catch (IOException | RuntimeException e) {
+            try {
+                cleanUp(workers, directory);
+            } catch (IOException | RuntimeException cleanUpFailure) {
+                e.addSuppressed(cleanUpFailure);
+            }
+            throw e;
+        }
+        cleanUp(workers, directory);
+        return result;
+    }
+
+    /**
+     * Kills the workers that are still running and waits for them to exit, so none is still
+     * writing when its files are deleted, then deletes the files and the directory.
+     */
+    private static void cleanUp(List<Process> workers, Path directory) throws IOException {
+        boolean interrupted = false;
+        for (Process worker : workers) {
+            worker.destroyForcibly();
+            while (worker.isAlive()) {
+                try {
+                    worker.waitFor();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        IOException failure = null;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path written : files.toList()) {
+                try {
+                    Files.deleteIfExists(written);
+                } catch (IOException e) {
+                    failure = suppress(failure, e);
+                }
+            }
+        }
+        try {
+            Files.delete(directory);
+        } catch (IOException e) {
+            failure = suppress(failure, e);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static IOException suppress(IOException failure, IOException e) {
+        if (failure == null) {
+            return e;
+        }
+        failure.addSuppressed(e);
+        return failure;
+    }
+
+    private static Path snapshot(Path directory, int shard) {
+        return directory.resolve("shard-" + shard + ".snapshot");
+    }
+
+    /**
+     * Builds the worker command line from the running JVM. Agent options are not passed on, so
+     * a debugger or profiler attached to the coordinator is not started once per worker.
+     */
+    private List<String> command(Path file, long start, long end, Path snapshot) {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse(Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+        for (String option : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (!option.startsWith("-agent") && !option.startsWith("-javaagent") && !option.startsWith("-XX:ActiveProcessorCount")) {
+                command.add(option);
+            }
+        }
+        command.add("-XX:ActiveProcessorCount=" + Math.max(1, Runtime.getRuntime().availableProcessors() / shards));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ShardWorker.class.getName());
+        command.add(engine.name());
+        command.add(file.toAbsolutePath().toString());
+        command.add(Long.toString(start));
+        command.add(Long.toString(end));
+        command.add(snapshot.toString());
+        return command;
+    }
+
+    private static int take(BlockingQueue<Integer> exited) throws IOException {
+        try {
+            return exited.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a shard worker", e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package brc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The worker process of a {@link ShardCoordinator} run: aggregates one byte range of the input
+ * and writes the result as a {@link StationSnapshot}.
+ * <p>
+ * Usage: {@code java brc.ShardWorker <engine> <input_file> <start> <end> <snapshot_file>}
+ * <p>
+ * {@code [start, end)} must be line-aligned. If the engine reports malformed lines, their counts
+ * are written next to the snapshot (see {@link #malformedFile(Path)}) so the coordinator can add
+ * them to its own. The process exits with status 1 and a message on standard error if anything
+ * fails.
+ */
+public class ShardWorker {
+
+    public static void main(String[] args) {
+        if (args.length != 5) {
+            System.err.println("Usage: java brc.ShardWorker <engine> <input_file> <start> <end> <snapshot_file>");
+            System.exit(1);
+        }
+
+        try (MappedFile file = MappedFile.open(Path.of(args[1]))) {
+            Engine engine = Engine.named(args[0]);
+            MalformedLines malformedLines = new MalformedLines();
+            SegmentAggregator aggregator = (SegmentAggregator) (engine.reportsMalformedLines()
+                    ? engine.create(malformedLines) : engine.create());
+            long start = Long.parseLong(args[2]);
+            long end = Long.parseLong(args[3]);
+            Path snapshot = Path.of(args[4]);
+            StationSnapshot.write(aggregator.aggregate(file.slice(start, end - start)), snapshot);
+            writeMalformed(malformedLines, malformedFile(snapshot));
+        } catch (Exception e) {
+            System.err.println("Shard " + args[2] + "-" + args[3] + " of " + args[1] + " failed: " + e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @param snapshot the snapshot file of a worker
+     * @return the file the worker writes its malformed-line counts to
+     */
+    static Path malformedFile(Path snapshot) {
+        return snapshot.resolveSibling(snapshot.getFileName() + ".malformed");
+    }
+
+    /**
+     * Writes one count per line, in the order of {@link LineError#values()}.
+     */
+    static void writeMalformed(MalformedLines malformedLines, Path file) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (LineError error : LineError.values()) {
+            text.append(malformedLines.count(error)).append('\n');
+        }
+        Files.writeString(file, text);
+    }
+
+    /**
+     * Adds the counts written by {@link #writeMalformed(MalformedLines, Path)} to {@code malformedLines}.
+     *
+     * @throws IOException if the file cannot be read or is not in that format
+     */
+    static void readMalformed(Path file, MalformedLines malformedLines) throws IOException {
+        List<String> lines = Files.readAllLines(file);
+        LineError[] errors = LineError.values();
+        if (lines.size() != errors.length) {
+            throw new IOException("Expected " + errors.length + " malformed-line counts in " + file + ", found " + lines.size());
+        }
+        long[] counts = new long[errors.length];
+        try {
+            for (int i = 0; i < errors.length; i++) {
+                counts[i] = Long.parseLong(lines.get(i));
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Bad malformed-line count in " + file + ": " + e.getMessage());
+        }
+        for (int i = 0; i < errors.length; i++) {
+            malformedLines.add(errors[i], counts[i]);
+        }
+    }
+}
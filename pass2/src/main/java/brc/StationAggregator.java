@@ -0,0 +1,30 @@
+package brc;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SortedMap;
+
+/**
+ * A strategy for turning a measurements file into per-station statistics.
+ * <p>
+ * Each of the pass2 implementations is exposed through this interface so they can be
+ * swapped for one another, selected at runtime (see {@link Engine}) and benchmarked
+ * side by side in the same JVM.
+ * <p>
+ * The input is a text file with one {@code Station;12.3} measurement per line.
+ * Lines starting with {@code #} are comments and are ignored.
+ */
+@FunctionalInterface
+public interface StationAggregator {
+
+    /**
+     * Reads the measurements file and aggregates the readings per station.
+     *
+     * @param file the measurements file to read
+     * @return the statistics per station, ordered alphabetically by station name.
+     *         {@code toString()} of the returned map is the standard
+     *         {@code {Station=min/mean/max, ...}} output.
+     * @throws IOException if the file cannot be read
+     */
+    SortedMap<String, StationStats> aggregate(Path file) throws IOException;
+}
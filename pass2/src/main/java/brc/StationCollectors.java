@@ -0,0 +1,91 @@
+package brc;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+
+/**
+ * {@link Collector}s that aggregate stream elements into running {@link StationStats} per station.
+ * <p>
+ * Each element is reduced as it arrives, so a collection holds one {@link StationStats} per
+ * distinct station however many elements the stream has. The temperature of an element is
+ * extracted first; elements for which it is {@link TemperatureParser#INVALID} are skipped
+ * without extracting the station name.
+ * <p>
+ * Both collectors are {@link Collector.Characteristics#UNORDERED UNORDERED}: the statistics do
+ * not depend on the encounter order, so parallel streams need not preserve it.
+ */
+public final class StationCollectors {
+
+    private StationCollectors() {
+    }
+
+    /**
+     * Collects into one {@link HashMap} per stream partition and merges the maps in the combiner.
+     * Nothing is shared between threads while elements are accumulated.
+     *
+     * @param station     extracts the station name of an element
+     * @param temperature extracts the temperature of an element in tenths
+     * @param <T>         the type of the stream elements
+     * @return the statistics per station, sorted by station name
+     */
+    public static <T> Collector<T, ?, SortedMap<String, StationStats>> toStationStats(
+            Function<? super T, String> station, ToIntFunction<? super T> temperature) {
+        return Collector.of(
+                HashMap::new,
+                (Map<String, StationStats> stats, T element) -> accumulate(stats, element, station, temperature),
+                (left, right) -> {
+                    right.forEach((name, partial) -> left.merge(name, partial, StationStats::merge));
+                    return left;
+                },
+                TreeMap::new,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Collects all partitions into one shared {@link ConcurrentHashMap}, updating a station
+     * atomically with {@link ConcurrentHashMap#compute}. There is no combining step, at the cost
+     * of contention on popular stations.
+     *
+     * @param station     extracts the station name of an element
+     * @param temperature extracts the temperature of an element in tenths
+     * @param <T>         the type of the stream elements
+     * @return the statistics per station, sorted by station name
+     */
+    public static <T> Collector<T, ?, SortedMap<String, StationStats>> toConcurrentStationStats(
+            Function<? super T, String> station, ToIntFunction<? super T> temperature) {
+        return Collector.of(
+                ConcurrentHashMap::new,
+                (ConcurrentHashMap<String, StationStats> stats, T element) -> {
+                    int tenths = temperature.applyAsInt(element);
+                    if (tenths == TemperatureParser.INVALID) {
+                        return;
+                    }
+                    stats.compute(station.apply(element), (name, current) -> {
+                        StationStats result = current == null ? new StationStats() : current;
+                        result.add(tenths);
+                        return result;
+                    });
+                },
+                (left, right) -> {
+                    right.forEach((name, partial) -> left.merge(name, partial, StationStats::merge));
+                    return left;
+                },
+                TreeMap::new,
+                Collector.Characteristics.CONCURRENT,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    private static <T> void accumulate(Map<String, StationStats> stats, T element,
+                                       Function<? super T, String> station, ToIntFunction<? super T> temperature) {
+        int tenths = temperature.applyAsInt(element);
+        if (tenths != TemperatureParser.INVALID) {
+            stats.computeIfAbsent(station.apply(element), name -> new StationStats()).add(tenths);
+        }
+    }
+}
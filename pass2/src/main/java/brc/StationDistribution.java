@@ -0,0 +1,64 @@
+package brc;
+
+/**
+ * The {@link StationStats} of a station together with the {@link TemperatureHistogram} of its
+ * readings.
+ * <p>
+ * {@link #toString()} extends the usual "min/mean/max" with the 50th, 95th and 99th nearest-rank
+ * percentiles and the exact median, for example {@code 1.2/10.4/19.8 p50=10.4 p95=18.9 p99=19.6
+ * median=10.45}.
+ */
+public final class StationDistribution {
+
+    private final StationStats stats = new StationStats();
+    private final TemperatureHistogram histogram = new TemperatureHistogram();
+
+    /**
+     * Adds one temperature reading.
+     *
+     * @param tenths the temperature in tenths of a degree
+     */
+    public void add(int tenths) {
+        stats.add(tenths);
+        histogram.add(tenths);
+    }
+
+    /**
+     * Adds all readings of {@code other} to this distribution.
+     *
+     * @param other the distribution to merge in
+     * @return this distribution
+     */
+    public StationDistribution merge(StationDistribution other) {
+        stats.merge(other.stats);
+        histogram.merge(other.histogram);
+        return this;
+    }
+
+    public StationStats stats() {
+        return stats;
+    }
+
+    public TemperatureHistogram histogram() {
+        return histogram;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(64).append(stats);
+        StationStats.appendTenths(result.append(" p50="), histogram.percentile(50));
+        StationStats.appendTenths(result.append(" p95="), histogram.percentile(95));
+        StationStats.appendTenths(result.append(" p99="), histogram.percentile(99));
+        result.append(" median=");
+        long twice = histogram.twiceMedianTenths();
+        if (twice < 0) {
+            result.append('-');
+            twice = -twice;
+        }
+        StationStats.appendTenths(result, twice / 2);
+        if (twice % 2 != 0) {
+            result.append('5');
+        }
+        return result.toString();
+    }
+}
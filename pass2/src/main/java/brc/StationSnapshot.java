@@ -0,0 +1,185 @@
+package brc;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A compact, versioned binary format for the contents of a {@link StationTable}.
+ * <p>
+ * Snapshots let partial results be stored, shipped between processes or hosts and merged
+ * later. All values are little-endian and unaligned:
+ * <pre>
+ * header   int magic ("BRCS"), int version, int station count, int reserved (0)
+ * station  int name length, name bytes (UTF-8),
+ *          short min, short max (tenths), long sum (tenths), long count
+ * </pre>
+ * Temperatures are at most 99.9 degrees, so min and max always fit in a {@code short}. Names
+ * are only limited by the longest line, so their length takes a whole {@code int}; version 1
+ * used an unsigned {@code short}, which could not hold names of 64 KB or more.
+ * <p>
+ * Snapshots are written from and merged into a {@link StationTable} directly through a
+ * {@link MemorySegment}, usually a mapped file, without creating any object per station.
+ */
+public final class StationSnapshot {
+
+    /**
+     * The current format version. Snapshots with any other version are rejected.
+     */
+    public static final int VERSION = 2;
+
+    private static final int MAGIC = 0x53435242; // "BRCS" read little-endian
+    private static final int HEADER_BYTES = 16;
+    private static final int STATS_BYTES = Short.BYTES * 2 + Long.BYTES * 2;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfShort SHORT = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private StationSnapshot() {
+    }
+
+    /**
+     * @param table the table to snapshot
+     * @return the number of bytes {@link #write(StationTable, MemorySegment)} needs
+     */
+    public static long byteSize(StationTable table) {
+        long size = HEADER_BYTES;
+        for (int i = 0; i < table.size(); i++) {
+            size += Integer.BYTES + table.key(table.entryAt(i)).byteSize() + STATS_BYTES;
+        }
+        return size;
+    }
+
+    /**
+     * Writes the table at the start of the segment.
+     *
+     * @param table  the table to write
+     * @param target the segment to write to, at least {@link #byteSize(StationTable)} bytes long
+     * @return the number of bytes written
+     */
+    public static long write(StationTable table, MemorySegment target) {
+        target.set(INT, 0, MAGIC);
+        target.set(INT, 4, VERSION);
+        target.set(INT, 8, table.size());
+        target.set(INT, 12, 0);
+        long position = HEADER_BYTES;
+        for (int i = 0; i < table.size(); i++) {
+            int entry = table.entryAt(i);
+            MemorySegment key = table.key(entry);
+            target.set(INT, position, (int) key.byteSize());
+            position += Integer.BYTES;
+            MemorySegment.copy(key, 0, target, position, key.byteSize());
+            position += key.byteSize();
+            target.set(SHORT, position, (short) table.min(entry));
+            target.set(SHORT, position + 2, (short) table.max(entry));
+            target.set(LONG, position + 4, table.sum(entry));
+            target.set(LONG, position + 12, table.count(entry));
+            position += STATS_BYTES;
+        }
+        return position;
+    }
+
+    /**
+     * Merges the snapshot at the start of the segment into the table. The whole snapshot is
+     * checked first, so the table is left unchanged if it is truncated or corrupt.
+     *
+     * @param source the segment holding the snapshot
+     * @param table  the table to merge into
+     * @return the number of bytes read
+     * @throws IllegalArgumentException if the segment does not hold a complete, valid snapshot of this version
+     */
+    public static long merge(MemorySegment source, StationTable table) {
+        int stations = validate(source);
+        long position = HEADER_BYTES;
+        for (int i = 0; i < stations; i++) {
+            int length = source.get(INT, position);
+            long name = position + Integer.BYTES;
+            position = name + length;
+            table.merge(source, name, length,
+                    source.get(SHORT, position),
+                    source.get(SHORT, position + 2),
+                    source.get(LONG, position + 4),
+                    source.get(LONG, position + 12));
+            position += STATS_BYTES;
+        }
+        return position;
+    }
+
+    /**
+     * Checks the header and that every station lies within the segment and holds statistics
+     * that {@link #write(StationTable, MemorySegment)} could have written.
+     *
+     * @return the number of stations
+     */
+    private static int validate(MemorySegment source) {
+        if (source.byteSize() < HEADER_BYTES || source.get(INT, 0) != MAGIC) {
+            throw new IllegalArgumentException("Not a station snapshot");
+        }
+        int version = source.get(INT, 4);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version " + version);
+        }
+        int stations = source.get(INT, 8);
+        if (stations < 0) {
+            throw new IllegalArgumentException("Corrupt snapshot: " + stations + " stations");
+        }
+        long position = HEADER_BYTES;
+        for (int i = 0; i < stations; i++) {
+            if (position + Integer.BYTES > source.byteSize()) {
+                throw new IllegalArgumentException("Truncated snapshot at station " + i);
+            }
+            int length = source.get(INT, position);
+            if (length < 0) {
+                throw new IllegalArgumentException("Corrupt snapshot at station " + i);
+            }
+            position += Integer.BYTES + length;
+            if (position + STATS_BYTES > source.byteSize()) {
+                throw new IllegalArgumentException("Truncated snapshot at station " + i);
+            }
+            short min = source.get(SHORT, position);
+            short max = source.get(SHORT, position + 2);
+            if (min > max || source.get(LONG, position + 12) <= 0) {
+                throw new IllegalArgumentException("Corrupt snapshot at station " + i);
+            }
+            position += STATS_BYTES;
+        }
+        return stations;
+    }
+
+    /**
+     * Writes the table to a file through a mapping, replacing the file if it exists.
+     *
+     * @param table the table to write
+     * @param file  the snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(StationTable table, Path file) throws IOException {
+        try (Arena arena = Arena.ofConfined();
+             FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(table, channel.map(FileChannel.MapMode.READ_WRITE, 0, byteSize(table), arena));
+        }
+    }
+
+    /**
+     * Reads a snapshot file into a new table.
+     *
+     * @param file the snapshot file
+     * @return the statistics held by the snapshot
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a snapshot of this version
+     */
+    public static StationTable read(Path file) throws IOException {
+        StationTable table = new StationTable();
+        try (MappedFile mapped = MappedFile.open(file)) {
+            merge(mapped.segment(), table);
+        }
+        return table;
+    }
+}
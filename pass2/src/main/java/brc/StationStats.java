@@ -0,0 +1,146 @@
+package brc;
+
+/**
+ * Running min, max, sum and count of the temperatures seen for one station.
+ * <p>
+ * Temperatures are held as integer tenths of a degree (see {@link TemperatureParser}), so
+ * aggregation is exact whatever order readings are added or merged in, and the output is
+ * rounded from the exact mean rather than from an accumulated {@code double}.
+ * <p>
+ * Instances are not thread-safe. Engines that aggregate in parallel either guard
+ * them or keep one instance per worker and {@link #merge(StationStats) merge} them
+ * at the end.
+ */
+public final class StationStats {
+
+    private int min = Integer.MAX_VALUE;
+    private int max = Integer.MIN_VALUE;
+    private long sum;
+    private long count;
+
+    /**
+     * Creates empty statistics.
+     */
+    public StationStats() {
+    }
+
+    /**
+     * Creates statistics from already aggregated values.
+     *
+     * @param min   the lowest temperature in tenths
+     * @param max   the highest temperature in tenths
+     * @param sum   the sum of all temperatures in tenths
+     * @param count the number of temperatures
+     */
+    public StationStats(int min, int max, long sum, long count) {
+        this.min = min;
+        this.max = max;
+        this.sum = sum;
+        this.count = count;
+    }
+
+    /**
+     * Adds one temperature reading.
+     *
+     * @param tenths the temperature in tenths of a degree
+     */
+    public void add(int tenths) {
+        min = Math.min(min, tenths);
+        max = Math.max(max, tenths);
+        sum += tenths;
+        count++;
+    }
+
+    /**
+     * Adds all readings aggregated by {@code other} to this instance.
+     *
+     * @param other the statistics to merge in
+     * @return this instance
+     */
+    public StationStats merge(StationStats other) {
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        sum += other.sum;
+        count += other.count;
+        return this;
+    }
+
+    public int minTenths() {
+        return min;
+    }
+
+    public int maxTenths() {
+        return max;
+    }
+
+    public long sumTenths() {
+        return sum;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double min() {
+        return min / 10.0;
+    }
+
+    public double max() {
+        return max / 10.0;
+    }
+
+    public double mean() {
+        return sum / 10.0 / count;
+    }
+
+    /**
+     * Returns the mean in tenths, rounded half away from zero like {@code %.1f} would
+     * round the exact mean.
+     *
+     * @return the rounded mean in tenths
+     */
+    public long meanTenths() {
+        return meanTenths(sum, count);
+    }
+
+    /**
+     * Returns the mean of {@code count} readings summing to {@code sum} tenths, rounded like
+     * {@link #meanTenths()}.
+     *
+     * @param sum   the sum of the readings in tenths
+     * @param count the number of readings
+     * @return the rounded mean in tenths
+     */
+    public static long meanTenths(long sum, long count) {
+        long rounded = (2 * Math.abs(sum) + count) / (2 * count);
+        return sum < 0 ? -rounded : rounded;
+    }
+
+    /**
+     * Returns the statistics in the format "min/mean/max".
+     *
+     * @return the formatted statistics
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(16);
+        appendTenths(result, min).append('/');
+        appendTenths(result, meanTenths()).append('/');
+        return appendTenths(result, max).toString();
+    }
+
+    /**
+     * Appends a value in tenths with exactly one decimal, for example {@code -123} as {@code -12.3}.
+     *
+     * @param builder the builder to append to
+     * @param tenths  the value in tenths
+     * @return the builder
+     */
+    public static StringBuilder appendTenths(StringBuilder builder, long tenths) {
+        if (tenths < 0) {
+            builder.append('-');
+            tenths = -tenths;
+        }
+        return builder.append(tenths / 10).append('.').append((char) ('0' + tenths % 10));
+    }
+}
@@ -0,0 +1,403 @@
+package brc;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * An open-addressing hash table from station name bytes to temperature statistics.
+ * <p>
+ * Station names are hashed and compared directly in the input {@link MemorySegment}; a
+ * station's name is only copied out of the input the first time it is seen. Strings are only
+ * created by {@link #toSortedMap()}, once per distinct station, so adding a reading to a known
+ * station allocates nothing.
+ * <p>
+ * Every station has one entry in a slab of {@code long}s: its insertion index and name length,
+ * min and max, sum and count, followed by the name bytes. The hash table itself is one
+ * {@code long} per slot holding the full 32-bit hash and the position of the entry. A reading
+ * for a known station therefore touches one slot and one entry, whose statistics and the start
+ * of whose name share a cache line, however many stations there are. Slots are probed linearly
+ * and the hash is compared before the name, so collisions stay cheap. The table doubles whenever
+ * it is half full and entries never move within the slab. {@link #collisions()} and
+ * {@link #probes()} count how well the hash spreads the stations.
+ * <p>
+ * Lookups do not get slower with more stations, but memory accesses do: once the slots and
+ * entries outgrow the caches, which happens somewhere past 10,000 stations with long names, most
+ * readings miss the cache twice, and throughput drops accordingly.
+ * <p>
+ * Instances are not thread-safe: each worker fills its own table and the tables are
+ * {@link #merge(StationTable) merged} at the end.
+ */
+public final class StationTable {
+
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final int INITIAL_SLAB_LONGS = 1 << 12;
+    private static final int HEADER = 0; // insertion index << 32 | name length
+    private static final int MIN_MAX = 1; // min << 32 | max
+    private static final int SUM = 2;
+    private static final int COUNT = 3;
+    private static final int NAME = 4;
+    private static final long EMPTY_MIN_MAX = (long) Integer.MAX_VALUE << 32 | (Integer.MIN_VALUE & 0xFFFFFFFFL);
+    private static final ValueLayout.OfLong WORD =
+            ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private int mask = INITIAL_CAPACITY - 1;
+    private long[] slots = new long[INITIAL_CAPACITY]; // hash << 32 | entry + 1, 0 when empty
+    private long[] slab = new long[INITIAL_SLAB_LONGS];
+    private MemorySegment names = MemorySegment.ofArray(slab);
+    private int slabUsed;
+    private int[] entries = new int[INITIAL_CAPACITY / 2]; // by insertion index
+    private int size;
+    private long collisions;
+    private long probes;
+
+    /**
+     * Hashes a station name eight bytes at a time.
+     *
+     * @param segment the segment holding the name
+     * @param offset  the offset of the first byte of the name
+     * @param length  the length of the name in bytes
+     * @return the hash of the name
+     */
+    public static int hash(MemorySegment segment, long offset, int length) {
+        long h = 0;
+        int i = 0;
+        for (; i + Long.BYTES <= length; i += Long.BYTES) {
+            h = mixWord(h, segment.get(WORD, offset + i));
+        }
+        if (i < length) {
+            h = mixWord(h, partialWord(segment, offset + i, length - i));
+        }
+        return finishHash(h);
+    }
+
+    /**
+     * One step of {@link #hash(MemorySegment, long, int)}: folds the next little-endian word of
+     * the name into the running hash. The last word holds the remaining bytes with the rest of
+     * the word zeroed and is skipped when the length is a multiple of eight.
+     *
+     * @param h    the running hash, 0 for the first word
+     * @param word the next eight bytes of the name
+     * @return the new running hash
+     */
+    public static long mixWord(long h, long word) {
+        return Long.rotateLeft((h ^ word) * 0x9E3779B97F4A7C15L, 27);
+    }
+
+    /**
+     * @param h the running hash after the last word
+     * @return the hash to pass to {@link #entry(MemorySegment, long, int, int)}
+     */
+    public static int finishHash(long h) {
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Reads the last {@code length < 8} bytes of a name as the low bytes of a little-endian word.
+     */
+    private static long partialWord(MemorySegment segment, long offset, int length) {
+        if (offset + Long.BYTES <= segment.byteSize()) {
+            return segment.get(WORD, offset) & (-1L >>> ((Long.BYTES - length) * 8));
+        }
+        long word = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            word = (word << 8) | (segment.get(ValueLayout.JAVA_BYTE, offset + i) & 0xFF);
+        }
+        return word;
+    }
+
+    /**
+     * Adds one temperature reading for the station whose name is at {@code [offset, offset + length)}.
+     *
+     * @param segment     the segment holding the name
+     * @param offset      the offset of the name
+     * @param length      the length of the name in bytes
+     * @param temperature the temperature in tenths of a degree
+     */
+    public void add(MemorySegment segment, long offset, int length, int temperature) {
+        add(segment, offset, length, hash(segment, offset, length), temperature);
+    }
+
+    /**
+     * Adds one temperature reading for a station whose name was already hashed.
+     *
+     * @param segment     the segment holding the name
+     * @param offset      the offset of the name
+     * @param length      the length of the name in bytes
+     * @param hash        the {@link #hash(MemorySegment, long, int) hash} of the name
+     * @param temperature the temperature in tenths of a degree
+     */
+    public void add(MemorySegment segment, long offset, int length, int hash, int temperature) {
+        int entry = entry(segment, offset, length, hash);
+        long[] slab = this.slab;
+        long minMax = slab[entry + MIN_MAX];
+        slab[entry + MIN_MAX] = minMax(Math.min((int) (minMax >> 32), temperature), Math.max((int) minMax, temperature));
+        slab[entry + SUM] += temperature;
+        slab[entry + COUNT]++;
+    }
+
+    /**
+     * Returns the position of the station's entry, inserting the station if it is not in the
+     * table yet. Positions stay valid for the life of the table.
+     *
+     * @param segment the segment holding the name
+     * @param offset  the offset of the name
+     * @param length  the length of the name in bytes
+     * @param hash    the {@link #hash(MemorySegment, long, int) hash} of the name
+     * @return the entry of the station
+     */
+    public int entry(MemorySegment segment, long offset, int length, int hash) {
+        int slot = hash & mask;
+        long value = slots[slot];
+        if ((int) value == 0) {
+            return insert(slot, segment, offset, length, hash);
+        }
+        int entry = (int) value - 1;
+        if ((int) (value >>> 32) == hash && matches(entry, segment, offset, length)) {
+            return entry;
+        }
+        return probe(slot, segment, offset, length, hash);
+    }
+
+    /**
+     * The rest of the lookup once the home slot holds another station, kept out of
+     * {@link #entry} so the common case stays small enough to inline.
+     */
+    private int probe(int home, MemorySegment segment, long offset, int length, int hash) {
+        collisions++;
+        int slot = home;
+        while (true) {
+            slot = (slot + 1) & mask;
+            probes++;
+            long value = slots[slot];
+            if ((int) value == 0) {
+                return insert(slot, segment, offset, length, hash);
+            }
+            int entry = (int) value - 1;
+            if ((int) (value >>> 32) == hash && matches(entry, segment, offset, length)) {
+                return entry;
+            }
+        }
+    }
+
+    private boolean matches(int entry, MemorySegment segment, long offset, int length) {
+        long name = (long) (entry + NAME) * Long.BYTES;
+        return (int) slab[entry + HEADER] == length
+                && MemorySegment.mismatch(names, name, name + length, segment, offset, offset + length) < 0;
+    }
+
+    private int insert(int slot, MemorySegment segment, long offset, int length, int hash) {
+        int entry = slabUsed;
+        int longs = NAME + (length + Long.BYTES - 1) / Long.BYTES;
+        if (entry + longs > slab.length) {
+            slab = Arrays.copyOf(slab, Math.max(slab.length * 2, entry + longs));
+            names = MemorySegment.ofArray(slab);
+        }
+        slab[entry + HEADER] = (long) size << 32 | length;
+        slab[entry + MIN_MAX] = EMPTY_MIN_MAX;
+        MemorySegment.copy(segment, offset, names, (long) (entry + NAME) * Long.BYTES, length);
+        slabUsed += longs;
+
+        slots[slot] = (long) hash << 32 | (entry + 1);
+        if (size == entries.length) {
+            grow();
+        }
+        entries[size++] = entry;
+        return entry;
+    }
+
+    /**
+     * Doubles the number of slots and moves every station to its slot in the larger table.
+     * Entries stay where they are in the slab.
+     */
+    private void grow() {
+        long[] old = slots;
+        mask = old.length * 2 - 1;
+        slots = new long[old.length * 2];
+        entries = Arrays.copyOf(entries, slots.length / 2);
+        for (long value : old) {
+            if ((int) value != 0) {
+                int slot = (int) (value >>> 32) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = value;
+            }
+        }
+    }
+
+    private static long minMax(int min, int max) {
+        return (long) min << 32 | (max & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Adds all statistics held by {@code other} to this table.
+     *
+     * @param other the table to merge in
+     * @return this table
+     */
+    public StationTable merge(StationTable other) {
+        for (int i = 0; i < other.size; i++) {
+            int from = other.entries[i];
+            long name = (long) (from + NAME) * Long.BYTES;
+            int length = other.length(from);
+            merge(entry(other.names, name, length, hash(other.names, name, length)),
+                    other.min(from), other.max(from), other.sum(from), other.count(from));
+        }
+        collisions += other.collisions;
+        probes += other.probes;
+        return this;
+    }
+
+    /**
+     * Adds already aggregated statistics for the station whose name is at
+     * {@code [offset, offset + length)}.
+     *
+     * @param segment the segment holding the name
+     * @param offset  the offset of the name
+     * @param length  the length of the name in bytes
+     * @param min     the lowest temperature in tenths
+     * @param max     the highest temperature in tenths
+     * @param sum     the sum of the temperatures in tenths
+     * @param count   the number of temperatures
+     */
+    public void merge(MemorySegment segment, long offset, int length, int min, int max, long sum, long count) {
+        merge(entry(segment, offset, length, hash(segment, offset, length)), min, max, sum, count);
+    }
+
+    private void merge(int entry, int min, int max, long sum, long count) {
+        slab[entry + MIN_MAX] = minMax(Math.min(min(entry), min), Math.max(max(entry), max));
+        slab[entry + SUM] += sum;
+        slab[entry + COUNT] += count;
+    }
+
+    /**
+     * @return the number of distinct stations in the table
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of slots; always at least twice {@link #size()}
+     */
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * @return the number of lookups, including those of merged tables, whose home slot held
+     *         another station
+     */
+    public long collisions() {
+        return collisions;
+    }
+
+    /**
+     * @return the number of slots probed past the home slot, including those of merged tables;
+     *         {@code probes() / collisions()} is the mean extra probe length of a collision
+     */
+    public long probes() {
+        return probes;
+    }
+
+    /**
+     * @param index an index below {@link #size()}, in insertion order
+     * @return the entry of the {@code index}th station inserted
+     */
+    int entryAt(int index) {
+        return entries[index];
+    }
+
+    /**
+     * @param entry the entry of a station
+     * @return the insertion index of the station, from 0 to {@link #size()} - 1
+     */
+    int index(int entry) {
+        return (int) (slab[entry + HEADER] >>> 32);
+    }
+
+    private int length(int entry) {
+        return (int) slab[entry + HEADER];
+    }
+
+    MemorySegment key(int entry) {
+        return names.asSlice((long) (entry + NAME) * Long.BYTES, length(entry));
+    }
+
+    String name(int entry) {
+        return new String(key(entry).toArray(ValueLayout.JAVA_BYTE), StandardCharsets.UTF_8);
+    }
+
+    int min(int entry) {
+        return (int) (slab[entry + MIN_MAX] >> 32);
+    }
+
+    int max(int entry) {
+        return (int) slab[entry + MIN_MAX];
+    }
+
+    long sum(int entry) {
+        return slab[entry + SUM];
+    }
+
+    long count(int entry) {
+        return slab[entry + COUNT];
+    }
+
+    /**
+     * Sorts the stations by their name bytes, in the order the decoded names would sort in
+     * (see {@link Utf8Order}), without decoding any name.
+     *
+     * @return the entries of all stations, sorted by name
+     */
+    int[] sortedEntries() {
+        int[] sorted = Arrays.copyOf(entries, size);
+        mergeSort(sorted, Arrays.copyOf(sorted, size), 0, size);
+        return sorted;
+    }
+
+    /**
+     * Sorts {@code entries[from, to)} by name, using {@code scratch}, which holds the same values,
+     * as the other half of each merge.
+     */
+    private void mergeSort(int[] entries, int[] scratch, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(scratch, entries, from, middle);
+        mergeSort(scratch, entries, middle, to);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right == to || left < middle && compare(scratch[left], scratch[right]) <= 0) {
+                entries[i] = scratch[left++];
+            } else {
+                entries[i] = scratch[right++];
+            }
+        }
+    }
+
+    private int compare(int a, int b) {
+        return Utf8Order.compare(names, (long) (a + NAME) * Long.BYTES, length(a), names, (long) (b + NAME) * Long.BYTES, length(b));
+    }
+
+    /**
+     * Decodes the station names and returns the statistics sorted by name.
+     *
+     * @return the statistics per station
+     */
+    public SortedMap<String, StationStats> toSortedMap() {
+        SortedMap<String, StationStats> result = new TreeMap<>();
+        for (int i = 0; i < size; i++) {
+            int entry = entries[i];
+            result.put(name(entry), new StationStats(min(entry), max(entry), sum(entry), count(entry)));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,94 @@
+package brc;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
+/**
+ * {@link DelimiterScanner} that reads the input eight bytes at a time as a {@code long} and
+ * finds delimiters with SIMD-within-a-register bit tricks, for JVMs that cannot enable the
+ * Vector API.
+ * <p>
+ * Words are read little-endian, so byte {@code k} of a word is the input byte at
+ * {@code offset + k} and the lowest set bit of {@link #matches(long, long)} is the first match.
+ * The static helpers are public so a parse loop can find the separator and hash the station
+ * name (see {@link StationTable#mixWord(long, long)}) from the same words.
+ */
+public final class SwarScanner implements DelimiterScanner {
+
+    public static final long SEMICOLONS = pattern((byte) ';');
+    public static final long NEWLINES = pattern((byte) '\n');
+
+    private static final ValueLayout.OfLong WORD =
+            ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+
+    /**
+     * @param b the byte to search for
+     * @return a word with {@code b} in each of its eight bytes
+     */
+    public static long pattern(byte b) {
+        return (b & 0xFFL) * ONES;
+    }
+
+    /**
+     * Reads the eight bytes at {@code offset}. Past the end of the segment the word is padded
+     * with zero bytes, which never match a delimiter.
+     *
+     * @param segment the segment to read
+     * @param offset  the offset of the first byte
+     * @return the bytes as a little-endian word
+     */
+    public static long word(MemorySegment segment, long offset) {
+        if (offset + Long.BYTES <= segment.byteSize()) {
+            return segment.get(WORD, offset);
+        }
+        long word = 0;
+        for (long i = segment.byteSize() - 1; i >= offset; i--) {
+            word = (word << 8) | (segment.get(ValueLayout.JAVA_BYTE, i) & 0xFF);
+        }
+        return word;
+    }
+
+    /**
+     * Returns a word with the high bit set in the bytes of {@code word} equal to the pattern's
+     * byte. Bits above the first match may be spurious, the lowest set bit is always exact.
+     *
+     * @param word    the input bytes
+     * @param pattern the result of {@link #pattern(byte)}
+     * @return the match bits, zero if no byte matches
+     */
+    public static long matches(long word, long pattern) {
+        long x = word ^ pattern;
+        return (x - ONES) & ~x & HIGHS;
+    }
+
+    /**
+     * @param matches a non-zero result of {@link #matches(long, long)}
+     * @return the index of the first matching byte in the word
+     */
+    public static int firstMatch(long matches) {
+        return Long.numberOfTrailingZeros(matches) >>> 3;
+    }
+
+    /**
+     * @param count the number of bytes to keep, 0 to 7
+     * @return a mask keeping the first {@code count} bytes of a word
+     */
+    public static long lowBytes(int count) {
+        return (1L << (count << 3)) - 1;
+    }
+
+    @Override
+    public long indexOf(MemorySegment segment, long from, long to, byte delimiter) {
+        long pattern = pattern(delimiter);
+        for (long i = from; i < to; i += Long.BYTES) {
+            long matches = matches(word(segment, i), pattern);
+            if (matches != 0) {
+                return Math.min(i + firstMatch(matches), to);
+            }
+        }
+        return to;
+    }
+}
@@ -0,0 +1,182 @@
+package brc;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An exact histogram of the temperatures of one station, with one bucket per tenth of a degree.
+ * <p>
+ * Temperatures are always between -99.9 and 99.9, so at most 1,999 buckets cover every possible
+ * reading. Only the buckets between the lowest and the highest reading so far are allocated:
+ * the range starts at {@value #MIN_BUCKETS} buckets and at least doubles whenever a reading falls
+ * outside it. A station whose readings span 40 degrees uses 4 bytes for each of 400 to 800
+ * buckets, and no histogram ever uses more than 8 KB, whatever the number of rows. Percentiles
+ * and the median are read from the bucket counts exactly, without storing or sorting the readings.
+ * <p>
+ * Bucket counts are {@code int}s, enough for the 1 billion rows of the challenge even if they
+ * all hold the same temperature. Instances are not thread-safe; keep one per worker and
+ * {@link #merge(TemperatureHistogram) merge} them.
+ */
+public final class TemperatureHistogram {
+
+    /**
+     * The lowest temperature in tenths.
+     */
+    public static final int MIN_TENTHS = -999;
+
+    /**
+     * The most buckets a histogram holds, one per tenth from -99.9 to 99.9.
+     */
+    public static final int BUCKETS = 1999;
+
+    /**
+     * The number of buckets allocated for the first reading.
+     */
+    static final int MIN_BUCKETS = 64;
+
+    private static final int[] NONE = new int[0];
+
+    private int[] buckets = NONE;
+    private int low; // The temperature in tenths held in buckets[0]
+    private long count;
+
+    /**
+     * Adds one temperature reading.
+     *
+     * @param tenths the temperature in tenths of a degree, between -999 and 999
+     */
+    public void add(int tenths) {
+        int i = tenths - low;
+        if (i < 0 || i >= buckets.length) {
+            cover(tenths, tenths);
+            i = tenths - low;
+        }
+        buckets[i]++;
+        count++;
+    }
+
+    /**
+     * Adds all readings of {@code other} to this histogram.
+     *
+     * @param other the histogram to merge in
+     * @return this histogram
+     */
+    public TemperatureHistogram merge(TemperatureHistogram other) {
+        if (other.count == 0) {
+            return this;
+        }
+        cover(other.low, other.low + other.buckets.length - 1);
+        int offset = other.low - low;
+        for (int i = 0; i < other.buckets.length; i++) {
+            buckets[offset + i] += other.buckets[i];
+        }
+        count += other.count;
+        return this;
+    }
+
+    /**
+     * @return the number of buckets allocated, between 0 and {@link #BUCKETS}
+     */
+    int allocatedBuckets() {
+        return buckets.length;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the nearest-rank percentile: the lowest reading that at least {@code percent}
+     * percent of the readings are less than or equal to.
+     * <p>
+     * The rank is computed in decimal, from the shortest decimal form of {@code percent}, as
+     * {@code percent / 100 * count} in binary floating point rounds {@code 7 / 100 * 100} up to
+     * just above 7 and its ceiling to 8.
+     *
+     * @param percent the percentile, greater than 0 and at most 100
+     * @return the percentile in tenths
+     * @throws IllegalArgumentException if {@code percent} is out of range
+     * @throws IllegalStateException    if the histogram is empty
+     */
+    public int percentile(double percent) {
+        if (!(percent > 0 && percent <= 100)) {
+            throw new IllegalArgumentException("Percentile out of range: " + percent);
+        }
+        long rank = BigDecimal.valueOf(percent)
+                .multiply(BigDecimal.valueOf(count))
+                .movePointLeft(2)
+                .setScale(0, RoundingMode.CEILING)
+                .longValueExact();
+        return valueAtRank(rank);
+    }
+
+    /**
+     * Returns the exact median times two, in tenths: the middle reading doubled for an odd
+     * number of readings, the sum of the two middle readings otherwise. Doubling keeps the
+     * median of an even number of readings, which may end in .05, an integer.
+     *
+     * @return twice the median in tenths
+     * @throws IllegalStateException if the histogram is empty
+     */
+    public long twiceMedianTenths() {
+        long lower = valueAtRank((count + 1) / 2);
+        long upper = valueAtRank(count / 2 + 1);
+        return count % 2 == 1 ? 2 * lower : lower + upper;
+    }
+
+    /**
+     * @return the exact median in degrees
+     * @throws IllegalStateException if the histogram is empty
+     */
+    public double median() {
+        return twiceMedianTenths() / 20.0;
+    }
+
+    /**
+     * Grows the buckets to cover {@code [min, max]}, to at least twice their size so a station
+     * whose range widens reading by reading is copied only a few times.
+     */
+    private void cover(int min, int max) {
+        int high = low + buckets.length - 1;
+        if (min >= low && max <= high) {
+            return;
+        }
+        if (buckets.length > 0) {
+            min = Math.min(min, low);
+            max = Math.max(max, high);
+        }
+        int size = Math.min(BUCKETS, Math.max(max - min + 1, Math.max(MIN_BUCKETS, 2 * buckets.length)));
+        int newLow;
+        if (buckets.length == 0) {
+            newLow = min - (size - (max - min + 1)) / 2; // Spare buckets on both sides
+        } else if (min < low) {
+            newLow = max - size + 1; // Spare buckets below, where the range grew
+        } else {
+            newLow = min; // Spare buckets above
+        }
+        newLow = Math.max(MIN_TENTHS, Math.min(newLow, MIN_TENTHS + BUCKETS - size));
+        int[] grown = new int[size];
+        if (buckets.length > 0) {
+            System.arraycopy(buckets, 0, grown, low - newLow, buckets.length);
+        }
+        buckets = grown;
+        low = newLow;
+    }
+
+    /**
+     * Returns the reading at a 1-based rank in ascending order.
+     */
+    private int valueAtRank(long rank) {
+        if (count == 0) {
+            throw new IllegalStateException("No readings");
+        }
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return i + low;
+            }
+        }
+        return buckets.length - 1 + low;
+    }
+}
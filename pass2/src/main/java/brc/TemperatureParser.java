@@ -0,0 +1,105 @@
+package brc;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Parses temperatures in the fixed input format into an {@code int} of tenths of a degree.
+ * <p>
+ * A temperature is always one optional {@code '-'}, one or two integer digits, a {@code '.'}
+ * and exactly one decimal digit, so {@code "-12.3"} becomes {@code -123}. Working in tenths
+ * keeps all aggregation in integer arithmetic, which is exact and faster than
+ * {@link Double#parseDouble(String)}.
+ * <p>
+ * The parsers never throw on bad input; anything outside the format yields {@link #INVALID}.
+ */
+public final class TemperatureParser {
+
+    /**
+     * Returned for input that is not a temperature in the expected format.
+     */
+    public static final int INVALID = Integer.MIN_VALUE;
+
+    private TemperatureParser() {
+    }
+
+    /**
+     * Parses the bytes {@code [from, to)} of the segment.
+     *
+     * @param segment the segment holding the temperature
+     * @param from    the offset of the first byte
+     * @param to      the offset just after the last byte
+     * @return the temperature in tenths, or {@link #INVALID}
+     */
+    public static int parse(MemorySegment segment, long from, long to) {
+        int length = (int) (to - from);
+        if (length < 3 || length > 5) {
+            return INVALID;
+        }
+        int negative = segment.get(ValueLayout.JAVA_BYTE, from) == '-' ? 1 : 0;
+        long p = from + negative;
+        int digits = length - negative;
+        if (digits == 3) {
+            return combine(negative, 0,
+                    segment.get(ValueLayout.JAVA_BYTE, p),
+                    segment.get(ValueLayout.JAVA_BYTE, p + 1),
+                    segment.get(ValueLayout.JAVA_BYTE, p + 2));
+        }
+        if (digits == 4) {
+            return combine(negative, segment.get(ValueLayout.JAVA_BYTE, p) - '0',
+                    segment.get(ValueLayout.JAVA_BYTE, p + 1),
+                    segment.get(ValueLayout.JAVA_BYTE, p + 2),
+                    segment.get(ValueLayout.JAVA_BYTE, p + 3));
+        }
+        return INVALID;
+    }
+
+    /**
+     * Parses the characters {@code [from, to)} of the sequence.
+     *
+     * @param chars the characters holding the temperature
+     * @param from  the index of the first character
+     * @param to    the index just after the last character
+     * @return the temperature in tenths, or {@link #INVALID}
+     */
+    public static int parse(CharSequence chars, int from, int to) {
+        int length = to - from;
+        if (length < 3 || length > 5) {
+            return INVALID;
+        }
+        int negative = chars.charAt(from) == '-' ? 1 : 0;
+        int p = from + negative;
+        int digits = length - negative;
+        if (digits == 3) {
+            return combine(negative, 0, chars.charAt(p), chars.charAt(p + 1), chars.charAt(p + 2));
+        }
+        if (digits == 4) {
+            return combine(negative, chars.charAt(p) - '0', chars.charAt(p + 1), chars.charAt(p + 2), chars.charAt(p + 3));
+        }
+        return INVALID;
+    }
+
+    /**
+     * Parses a whole string such as {@code "-12.3"}.
+     *
+     * @param chars the temperature
+     * @return the temperature in tenths, or {@link #INVALID}
+     */
+    public static int parse(CharSequence chars) {
+        return parse(chars, 0, chars.length());
+    }
+
+    /**
+     * Combines {@code [tens]units.decimal} into signed tenths. The digit checks are folded into
+     * one test: every digit value must fit in four bits and be below ten.
+     */
+    private static int combine(int negative, int tens, int units, int dot, int decimal) {
+        int u = units - '0';
+        int d = decimal - '0';
+        if (dot != '.' || ((tens | u | d) & ~0xF) != 0 || tens > 9 || u > 9 || d > 9) {
+            return INVALID;
+        }
+        int value = tens * 100 + u * 10 + d;
+        return (value ^ -negative) + negative;
+    }
+}
@@ -0,0 +1,59 @@
+package brc;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Compares UTF-8 encoded names in the order {@link String#compareTo(String)} gives the decoded
+ * names, without decoding them.
+ * <p>
+ * Unsigned byte order of UTF-8 is code point order, while {@code String} compares UTF-16 code
+ * units. The two only disagree between supplementary characters (U+10000 and up, surrogate pairs
+ * in UTF-16) and U+E000 to U+FFFF: surrogates sort before U+E000 in UTF-16, but the lead bytes
+ * {@code F0}-{@code F4} sort after {@code EE} and {@code EF} in UTF-8. Both names are equal up to
+ * the first differing byte, so that byte is either a continuation byte of two characters with the
+ * same lead byte, where both orders agree, or the lead byte of two different characters, where
+ * moving {@code EE} and {@code EF} above {@code F4} restores the {@code String} order.
+ * <p>
+ * The names must be valid UTF-8; malformed bytes decode to U+FFFD and would sort differently.
+ */
+public final class Utf8Order {
+
+    private Utf8Order() {
+    }
+
+    /**
+     * Compares two names.
+     *
+     * @param a       the segment holding the first name
+     * @param aOffset the offset of the first name
+     * @param aLength the length of the first name in bytes
+     * @param b       the segment holding the second name
+     * @param bOffset the offset of the second name
+     * @param bLength the length of the second name in bytes
+     * @return a negative number, zero or a positive number as the first name sorts before, equal
+     *         to or after the second
+     */
+    public static int compare(MemorySegment a, long aOffset, int aLength, MemorySegment b, long bOffset, int bLength) {
+        // Sliced rather than the static mismatch, which can miss differences when both names
+        // are in the same heap segment on older JDKs
+        long mismatch = a.asSlice(aOffset, aLength).mismatch(b.asSlice(bOffset, bLength));
+        if (mismatch < 0) {
+            return 0;
+        }
+        if (mismatch == aLength || mismatch == bLength) {
+            return Integer.compare(aLength, bLength);
+        }
+        return Integer.compare(rank(a.get(ValueLayout.JAVA_BYTE, aOffset + mismatch)),
+                rank(b.get(ValueLayout.JAVA_BYTE, bOffset + mismatch)));
+    }
+
+    /**
+     * Maps a byte to its sort rank: unsigned, with the lead bytes of U+E000 to U+FFFF moved
+     * above those of the supplementary characters.
+     */
+    private static int rank(byte value) {
+        int unsigned = value & 0xFF;
+        return unsigned == 0xEE || unsigned == 0xEF ? unsigned + 0x10 : unsigned;
+    }
+}
@@ -0,0 +1,82 @@
+package brc;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
+/**
+ * {@link DelimiterScanner} that compares a whole vector of bytes (32 with AVX2, 64 with AVX-512)
+ * against the delimiter in one instruction and takes the position of the first match from the
+ * resulting mask.
+ * <p>
+ * Lines are much shorter than a vector, so {@link #forEachLine} does not search for each
+ * delimiter in turn: it compares every vector against {@code ';'} and {@code '\n'} together and
+ * walks the set bits of the combined mask, the way the SWAR parse loop walks its match words.
+ * <p>
+ * Requires {@code --add-modules jdk.incubator.vector}; use {@link DelimiterScanner#best()} rather
+ * than creating it directly.
+ */
+final class VectorScanner implements DelimiterScanner {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    @Override
+    public long indexOf(MemorySegment segment, long from, long to, byte delimiter) {
+        long i = from;
+        for (; i + LANES <= to; i += LANES) {
+            int lane = ByteVector.fromMemorySegment(SPECIES, segment, i, ByteOrder.nativeOrder())
+                    .eq(delimiter)
+                    .firstTrue();
+            if (lane < LANES) {
+                return i + lane;
+            }
+        }
+        for (; i < to; i++) {
+            if (segment.get(ValueLayout.JAVA_BYTE, i) == delimiter) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    @Override
+    public void forEachLine(MemorySegment segment, long from, long to, LineVisitor visitor) {
+        long lineStart = from;
+        long separator = -1;
+        long i = from;
+        for (; i + LANES <= to; i += LANES) {
+            ByteVector bytes = ByteVector.fromMemorySegment(SPECIES, segment, i, ByteOrder.nativeOrder());
+            long newlines = bytes.eq((byte) '\n').toLong();
+            long delimiters = newlines | bytes.eq((byte) ';').toLong();
+            while (delimiters != 0) {
+                long bit = delimiters & -delimiters;
+                long offset = i + Long.numberOfTrailingZeros(bit);
+                delimiters ^= bit;
+                if ((newlines & bit) != 0) {
+                    visitor.line(lineStart, separator < 0 ? offset : separator, offset);
+                    lineStart = offset + 1;
+                    separator = -1;
+                } else if (separator < 0) {
+                    separator = offset;
+                }
+            }
+        }
+        for (; i < to; i++) {
+            byte b = segment.get(ValueLayout.JAVA_BYTE, i);
+            if (b == '\n') {
+                visitor.line(lineStart, separator < 0 ? i : separator, i);
+                lineStart = i + 1;
+                separator = -1;
+            } else if (b == ';' && separator < 0) {
+                separator = i;
+            }
+        }
+        if (lineStart < to) {
+            visitor.line(lineStart, separator < 0 ? to : separator, to);
+        }
+    }
+}
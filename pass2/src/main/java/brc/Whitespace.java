@@ -0,0 +1,59 @@
+package brc;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * The one rule every engine uses for whitespace around the station name and the temperature.
+ * <p>
+ * Whitespace is any byte from {@code 0x00} to {@code 0x20}, the same characters
+ * {@link String#trim()} removes, so engines that work on {@code String}s trim with it and get the
+ * same result. Both fields of a line are trimmed before they are used: {@code " Oslo ; 1.2"} is
+ * station {@code Oslo} at 1.2 degrees in every engine. Bytes of multi-byte UTF-8 characters are
+ * negative and never whitespace.
+ */
+public final class Whitespace {
+
+    private Whitespace() {
+    }
+
+    /**
+     * @param b a byte of the input
+     * @return true if the byte is whitespace
+     */
+    public static boolean is(byte b) {
+        return b <= ' ' && b >= 0;
+    }
+
+    /**
+     * @param segment the segment holding the field
+     * @param from    the offset of the first byte of the field
+     * @param to      the offset just after the field
+     * @return the offset of the first byte of the field that is not whitespace, or {@code to}
+     */
+    public static long skip(MemorySegment segment, long from, long to) {
+        while (from < to && is(segment.get(ValueLayout.JAVA_BYTE, from))) from++;
+        return from;
+    }
+
+    /**
+     * @param segment the segment holding the field
+     * @param from    the offset of the first byte of the field
+     * @param to      the offset just after the field
+     * @return the offset just after the last byte of the field that is not whitespace, or {@code from}
+     */
+    public static long trim(MemorySegment segment, long from, long to) {
+        while (to > from && is(segment.get(ValueLayout.JAVA_BYTE, to - 1))) to--;
+        return to;
+    }
+
+    /**
+     * @param segment the segment holding the field
+     * @param from    the offset of the first byte of the field
+     * @param to      the offset just after the field
+     * @return true if the field holds nothing but whitespace
+     */
+    public static boolean isBlank(MemorySegment segment, long from, long to) {
+        return skip(segment, from, to) == to;
+    }
+}
@@ -0,0 +1,49 @@
+package brc;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * One private aggregation state per worker thread, merged once when the work is done.
+ * <p>
+ * Workers only ever write to the state returned by {@link #get()} on their own thread, so the
+ * per-row path has no shared writes, locks or atomics. Every state that was handed out is
+ * remembered so they can be combined with {@link #forEach(Consumer)} after all workers have finished.
+ *
+ * @param <T> the type of the per-worker state, for example a map of station statistics
+ */
+public final class WorkerLocal<T> {
+
+    private final Queue<T> states = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<T> local;
+
+    /**
+     * @param factory creates the empty state of a worker, called once per worker thread
+     */
+    public WorkerLocal(Supplier<T> factory) {
+        this.local = ThreadLocal.withInitial(() -> {
+            T state = factory.get();
+            states.add(state);
+            return state;
+        });
+    }
+
+    /**
+     * @return the state of the calling thread, created on first use
+     */
+    public T get() {
+        return local.get();
+    }
+
+    /**
+     * Visits the state of every worker, typically to merge them. Must only be called once the
+     * workers are done.
+     *
+     * @param action called once for each state that was handed out
+     */
+    public void forEach(Consumer<? super T> action) {
+        states.forEach(action);
+    }
+}
@@ -1,13 +1,16 @@
 package gemini;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import brc.LineSpliterator;
+import brc.MalformedLines;
+import brc.MappedFile;
+import brc.ResultWriter;
+import brc.StationAggregator;
+import brc.StationCollectors;
+import brc.StationStats;
+
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.atomic.DoubleAdder;
-import java.util.stream.Collectors;
 
 /**
  * Processes a large text file containing temperature measurements per weather station.
@@ -15,49 +18,49 @@ import java.util.stream.Collectors;
  *
  * @author gemini
  */
-public class Google_Gemini_TemperatureProcessor {
+public class Google_Gemini_TemperatureProcessor implements StationAggregator {
 
-    public static void main(String[] args) throws IOException {
-        // Java version: 17
-        String filename = args[0];
+    private final MalformedLines malformedLines;
 
-        // Read the file in parallel, filtering out comments and storing data in a ConcurrentHashMap
-        Map<String, List<Double>> stationTemperatures = new ConcurrentHashMap<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            reader.lines().parallel().filter(line -> !line.startsWith("#")).forEach(line -> {
-                String[] parts = line.split(";");
-                String station = parts[0];
-                double temperature = Double.parseDouble(parts[1]);
-                stationTemperatures.computeIfAbsent(station, k -> new ArrayList<>()).add(temperature);
-            });
-        }
+    /**
+     * Creates an instance that only counts malformed lines.
+     */
+    public Google_Gemini_TemperatureProcessor() {
+        this(new MalformedLines());
+    }
 
-        // Calculate statistics for each station in parallel
-        Map<String, String> stationStats = stationTemperatures.entrySet().parallelStream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        entry -> {
-                            List<Double> temps = entry.getValue();
-                            DoubleAdder sum = new DoubleAdder();
-                            AtomicReference<Double> min = new AtomicReference<>(Double.MAX_VALUE);
-                            AtomicReference<Double> max = new AtomicReference<>(Double.MIN_VALUE);
-                            temps.forEach(t -> {
-                                sum.add(t);
-                                min.set(Math.min(min.get(), t));
-                                max.set(Math.max(max.get(), t));
-                            });
-                            double mean = sum.doubleValue() / temps.size();
-                            return String.format("%.1f/%.1f/%.1f", min, mean, max);
-                        }
-                ));
+    /**
+     * @param malformedLines receives every line that is skipped as malformed
+     */
+    public Google_Gemini_TemperatureProcessor(MalformedLines malformedLines) {
+        this.malformedLines = malformedLines;
+    }
 
+    public static void main(String[] args) throws IOException {
+        // Java version: 17
+        String filename = args[0];
 
         // Print the results, sorted alphabetically by station name
-        Map<String, String> sortedStats = stationStats.entrySet().stream()
-                .sorted(Comparator.comparing(Map.Entry::getKey))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue,
-        (a, b) -> a, LinkedHashMap::new));
-        System.out.println(sortedStats);
+        Map<String, StationStats> sortedStats = new Google_Gemini_TemperatureProcessor().aggregate(Path.of(filename));
+        ResultWriter.stdout().write(sortedStats);
 
     }
-}
\ No newline at end of file
+
+    /**
+     * Reads the file in parallel and calculates the statistics for each station.
+     *
+     * @param file the input file
+     * @return the statistics per station, sorted alphabetically by station name
+     * @throws IOException if the file cannot be read
+     */
+    @Override
+    public SortedMap<String, StationStats> aggregate(Path file) throws IOException {
+        // Read the mapped file in parallel, filtering out comments and collecting running statistics into one
+        // ConcurrentHashMap. Only one StationStats per station is held, whatever the size of the file.
+        try (MappedFile mapped = MappedFile.open(file)) {
+            return LineSpliterator.records(mapped, true)
+                    .filter(record -> !record.isComment())
+                    .collect(StationCollectors.toConcurrentStationStats(record -> record.station().trim(), malformedLines::temperature));
+        }
+    }
+}
@@ -1,11 +1,19 @@
 // Java 17
 package kumar;
 
+import brc.MalformedLines;
+import brc.ResultWriter;
+import brc.StationAggregator;
+import brc.StationStats;
+import brc.TemperatureParser;
+
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.SortedMap;
 import java.util.TreeMap;
 
 /**
@@ -15,7 +23,23 @@ import java.util.TreeMap;
  *
  * @author Kumar
  */
-public class Codeium_OneBillionRowChallenge {
+public class Codeium_OneBillionRowChallenge implements StationAggregator {
+    private final MalformedLines malformedLines;
+
+    /**
+     * Creates an instance that only counts malformed lines.
+     */
+    public Codeium_OneBillionRowChallenge() {
+        this(new MalformedLines());
+    }
+
+    /**
+     * @param malformedLines receives every line that is skipped as malformed
+     */
+    public Codeium_OneBillionRowChallenge(MalformedLines malformedLines) {
+        this.malformedLines = malformedLines;
+    }
+
     public static void main(String[] args) {
         if (args.length != 1) {
             System.err.println("Usage: java OneBillionRowChallenge <input_file>");
@@ -24,10 +48,40 @@ public class Codeium_OneBillionRowChallenge {
 
         String inputFile = args[0];
 
+        SortedMap<String, StationStats> sortedTemperatureStats;
+        MalformedLines malformedLines = new MalformedLines();
+        try {
+            sortedTemperatureStats = new Codeium_OneBillionRowChallenge(malformedLines).aggregate(Path.of(inputFile));
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            return;
+        }
+        // One summary instead of a message per bad line
+        if (malformedLines.total() > 0) {
+            System.err.println("Skipped malformed lines: " + malformedLines);
+        }
+
+        // Write the output in one go
+        try {
+            ResultWriter.stdout().write(sortedTemperatureStats);
+        } catch (IOException e) {
+            System.err.println("Error writing output: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the input file and calculates the temperature statistics for each station.
+     *
+     * @param inputFile the input file
+     * @return the temperature statistics, sorted alphabetically by station name
+     * @throws IOException if the file cannot be read
+     */
+    @Override
+    public SortedMap<String, StationStats> aggregate(Path inputFile) throws IOException {
         // Create a map to store the temperature statistics for each station
-        Map<String, TemperatureStats> temperatureStats = new HashMap<>();
+        Map<String, StationStats> temperatureStats = new HashMap<>();
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(inputFile))) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(inputFile.toFile()))) {
             String line;
             while ((line = reader.readLine()) != null) {
                 // Ignore comments
@@ -35,72 +89,22 @@ public class Codeium_OneBillionRowChallenge {
                     continue;
                 }
 
-                // Split the line into station name and temperature value
-                String[] parts = line.split(";");
-                if (parts.length != 2) {
-                    System.err.println("Invalid input format: " + line);
+                // Split the line into station name and temperature value, both trimmed as in brc.Whitespace
+                String[] parts = line.split(";", -1);
+                String station = parts[0].trim();
+                int temperature = parts.length == 2 ? TemperatureParser.parse(parts[1].trim()) : TemperatureParser.INVALID;
+                if (temperature == TemperatureParser.INVALID || station.isEmpty()) {
+                    malformedLines.report(line); // Counted by category, and quarantined if enabled
                     continue;
                 }
 
-                String station = parts[0];
-                try {
-                    double temperature = Double.parseDouble(parts[1]);
-                    // Update the temperature statistics for the station
-                    temperatureStats.computeIfAbsent(station, k -> new TemperatureStats())
-                            .update(temperature);
-                } catch (NumberFormatException e) {
-                    System.err.println("Invalid temperature value: " + parts[1]);
-                }
+                // Update the temperature statistics for the station
+                temperatureStats.computeIfAbsent(station, k -> new StationStats())
+                        .add(temperature);
             }
-        } catch (IOException e) {
-            System.err.println("Error reading file: " + e.getMessage());
-            return;
         }
 
         // Sort the temperature statistics alphabetically by station name
-        TreeMap<String, TemperatureStats> sortedTemperatureStats = new TreeMap<>(temperatureStats);
-
-        // Build the output string
-        StringBuilder output = new StringBuilder();
-        output.append('{');
-        for (Map.Entry<String, TemperatureStats> entry : sortedTemperatureStats.entrySet()) {
-            output.append(entry.getKey()).append('=').append(entry.getValue());
-            output.append(", ");
-        }
-        output.delete(output.length() - 2, output.length());
-        output.append('}');
-
-        System.out.println(output);
-    }
-
-    /**
-     * This class represents the temperature statistics for a weather station.
-     */
-    static class TemperatureStats {
-        private double min;
-        private double sum;
-        private double max;
-        private int count;
-
-        /**
-         * Updates the temperature statistics with a new temperature value.
-         *
-         * @param temperature the new temperature value
-         */
-        public void update(double temperature) {
-            if (count == 0 || temperature < min) {
-                min = temperature;
-            }
-            if (temperature > max) {
-                max = temperature;
-            }
-            sum += temperature;
-            count++;
-        }
-
-        @Override
-        public String toString() {
-            return String.format("%.1f/%.1f/%.1f", min, sum / count, max);
-        }
+        return new TreeMap<>(temperatureStats);
     }
 }
@@ -1,9 +1,16 @@
 package spoole;
 
+import brc.ResultWriter;
+import brc.StationAggregator;
+import brc.StationStats;
+import brc.TemperatureParser;
+
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.SortedMap;
 import java.util.TreeMap;
 
 /**
@@ -14,7 +21,7 @@ import java.util.TreeMap;
  * @author spoole
  * @version 1.0
  */
-public class AmazonQ_TemperatureAnalyzer {
+public class AmazonQ_TemperatureAnalyzer implements StationAggregator {
 
     /**
      * Main method to run the temperature analysis.
@@ -28,89 +35,60 @@ public class AmazonQ_TemperatureAnalyzer {
         }
 
         String filePath = args[0];
-        Map<String, TemperatureStats> stationStats = new TreeMap<>();
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (!line.startsWith("#")) { // Ignore comments
-                    processLine(line, stationStats);
-                }
-            }
+        Map<String, StationStats> stationStats;
+        try {
+            stationStats = new AmazonQ_TemperatureAnalyzer().aggregate(Path.of(filePath));
         } catch (IOException e) {
             System.err.println("Error reading the file: " + e.getMessage());
             return;
         }
 
         // Print results
-        System.out.println(formatResults(stationStats));
-    }
-
-    /**
-     * Processes a single line from the input file and updates the statistics.
-     *
-     * @param line The input line containing station name and temperature.
-     * @param stationStats The map to store temperature statistics for each station.
-     */
-    private static void processLine(String line, Map<String, TemperatureStats> stationStats) {
-        String[] parts = line.split(";");
-        if (parts.length == 2) {
-            String station = parts[0];
-            double temperature = Double.parseDouble(parts[1]);
-            stationStats.computeIfAbsent(station, k -> new TemperatureStats())
-                    .addMeasurement(temperature);
+        try {
+            ResultWriter.stdout().write(stationStats);
+        } catch (IOException e) {
+            System.err.println("Error writing the results: " + e.getMessage());
         }
     }
 
     /**
-     * Formats the results as a string in the required output format.
+     * Reads the input file line by line and collects the statistics for each station.
      *
-     * @param stationStats The map containing temperature statistics for each station.
-     * @return A formatted string with the results.
+     * @param file The path to the input file.
+     * @return The statistics per station, sorted by station name.
+     * @throws IOException If the file cannot be read.
      */
-    private static String formatResults(Map<String, TemperatureStats> stationStats) {
-        StringBuilder result = new StringBuilder("{");
-        boolean first = true;
-        for (Map.Entry<String, TemperatureStats> entry : stationStats.entrySet()) {
-            if (!first) {
-                result.append(", ");
+    @Override
+    public SortedMap<String, StationStats> aggregate(Path file) throws IOException {
+        SortedMap<String, StationStats> stationStats = new TreeMap<>();
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file.toFile()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith("#")) { // Ignore comments
+                    processLine(line, stationStats);
+                }
             }
-            result.append(entry.getKey()).append("=").append(entry.getValue());
-            first = false;
         }
-        result.append("}");
-        return result.toString();
+        return stationStats;
     }
 
     /**
-     * Inner class to store and calculate temperature statistics for a station.
+     * Processes a single line from the input file and updates the statistics.
+     *
+     * @param line The input line containing station name and temperature.
+     * @param stationStats The map to store temperature statistics for each station.
      */
-    private static class TemperatureStats {
-        private double min = Double.MAX_VALUE;
-        private double max = Double.MIN_VALUE;
-        private double sum = 0;
-        private long count = 0;
-
-        /**
-         * Adds a new temperature measurement and updates the statistics.
-         *
-         * @param temperature The temperature measurement to add.
-         */
-        public void addMeasurement(double temperature) {
-            min = Math.min(min, temperature);
-            max = Math.max(max, temperature);
-            sum += temperature;
-            count++;
-        }
-
-        /**
-         * Returns a string representation of the temperature statistics.
-         *
-         * @return A string in the format "min/mean/max".
-         */
-        @Override
-        public String toString() {
-            return String.format("%.1f/%.1f/%.1f", min, sum / count, max);
+    private static void processLine(String line, Map<String, StationStats> stationStats) {
+        String[] parts = line.split(";", -1);
+        if (parts.length == 2) {
+            // Surrounding whitespace is ignored in both fields, as in brc.Whitespace
+            String station = parts[0].trim();
+            int temperature = TemperatureParser.parse(parts[1].trim());
+            if (temperature != TemperatureParser.INVALID && !station.isEmpty()) {
+                stationStats.computeIfAbsent(station, k -> new StationStats())
+                        .add(temperature);
+            }
         }
     }
 }
@@ -1,13 +1,21 @@
 package yourname;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import brc.LineSpliterator;
+import brc.MalformedLines;
+import brc.MappedFile;
+import brc.MeasurementRecord;
+import brc.ResultWriter;
+import brc.StationAggregator;
+import brc.StationStats;
+import brc.TemperatureParser;
+import brc.WorkerLocal;
+
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.DoubleAdder;
-import java.util.stream.Collectors;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * A Java program to retrieve temperature measurements from a large text file (1 billion rows),
@@ -17,87 +25,84 @@ import java.util.stream.Collectors;
  * To compile: javac BRCChallenge.java
  * To run: java yourname.BRCChallenge <filename>
  */
-public class ChatGPT_BRCChallenge_V2 {
+public class ChatGPT_BRCChallenge_V2 implements StationAggregator {
+
+    private final MalformedLines malformedLines;
 
-    // Data structure to hold summary stats per station
-    private static final Map<String, StationStatistics> stationData = new ConcurrentHashMap<>();
+    /**
+     * Creates an instance that only counts malformed lines.
+     */
+    public ChatGPT_BRCChallenge_V2() {
+        this(new MalformedLines());
+    }
+
+    /**
+     * @param malformedLines receives every line that is skipped as malformed
+     */
+    public ChatGPT_BRCChallenge_V2(MalformedLines malformedLines) {
+        this.malformedLines = malformedLines;
+    }
 
     public static void main(String[] args) {
 
 
         String filename = args[0];
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            reader.lines()
-                    .parallel() // Use parallel stream to process the file quickly
-                    .filter(line -> !line.startsWith("#")) // Skip comment lines
-                    .forEach(ChatGPT_BRCChallenge_V2::processLine);
+        SortedMap<String, StationStats> stats = new TreeMap<>();
+        try {
+            stats = new ChatGPT_BRCChallenge_V2().aggregate(Path.of(filename));
         } catch (IOException e) {
             e.printStackTrace();
         }
 
         // Output the results, sorted alphabetically by station name
-        String result = stationData.entrySet()
-                .stream()
-                .sorted(Map.Entry.comparingByKey())
-                .map(entry -> String.format("%s=%.1f/%.1f/%.1f",
-                        entry.getKey(),
-                        entry.getValue().getMin(),
-                        entry.getValue().getMean(),
-                        entry.getValue().getMax()))
-                .collect(Collectors.joining(", ", "{", "}"));
-
-       if(args.length==1) System.out.println(result);
+        if (args.length == 1) {
+            try {
+                ResultWriter.stdout().write(stats);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
     }
 
     /**
-     * Processes a single line of input, extracting the station name and temperature,
-     * and updates the statistics for that station.
-     * @param line the line of input
+     * Processes the file in parallel and returns the statistics sorted by station name.
+     * Each worker aggregates into its own map; the maps are merged once the stream is done.
+     * @param file the input file
+     * @return the statistics per station
+     * @throws IOException if the file cannot be read
      */
-    private static void processLine(String line) {
-        String[] parts = line.split(";");
-        if (parts.length != 2) return; // Ignore malformed lines
-
-        String station = parts[0].trim();
-        double temperature;
-        try {
-            temperature = Double.parseDouble(parts[1].trim());
-        } catch (NumberFormatException e) {
-            return; // Ignore malformed temperature values
+    @Override
+    public SortedMap<String, StationStats> aggregate(Path file) throws IOException {
+        // Summary stats per station, one private map per worker thread so no row is written to shared state
+        WorkerLocal<Map<String, StationStats>> stationData = new WorkerLocal<>(HashMap::new);
+
+        try (MappedFile mapped = MappedFile.open(file)) {
+            LineSpliterator.records(mapped, true) // Parallel stream split at line boundaries of the mapped file
+                    .filter(record -> !record.isComment()) // Skip comment lines
+                    .forEach(record -> processLine(record, stationData.get()));
         }
 
-        stationData.computeIfAbsent(station, k -> new StationStatistics())
-                .update(temperature);
+        SortedMap<String, StationStats> result = new TreeMap<>();
+        stationData.forEach(partial -> partial.forEach((station, stats) -> result.merge(station, stats, StationStats::merge)));
+        return result;
     }
 
     /**
-     * Helper class to hold statistics for each station.
-     * Uses DoubleAdder for efficient summing in a multithreaded context.
+     * Processes a single line of input, extracting the station name and temperature,
+     * and updates the statistics for that station.
+     * @param record the line of input
+     * @param stationData the statistics of the calling worker
      */
-    private static class StationStatistics {
-        private double min = Double.MAX_VALUE;
-        private double max = Double.MIN_VALUE;
-        private final DoubleAdder sum = new DoubleAdder();
-        private final AtomicLong count = new AtomicLong();
-
-        public synchronized void update(double temperature) {
-            min = Math.min(min, temperature);
-            max = Math.max(max, temperature);
-            sum.add(temperature);
-            count.incrementAndGet();
+    private void processLine(MeasurementRecord record, Map<String, StationStats> stationData) {
+        int temperature = malformedLines.temperature(record);
+        if (temperature == TemperatureParser.INVALID) {
+            return; // Malformed lines are reported by category and otherwise ignored
         }
 
-        public double getMin() {
-            return min;
-        }
+        String station = record.station().trim();
 
-        public double getMax() {
-            return max;
-        }
-
-        public double getMean() {
-            return sum.sum() / count.get();
-        }
+        stationData.computeIfAbsent(station, k -> new StationStats())
+                .add(temperature);
     }
 }
@@ -1,15 +1,27 @@
 package yourname; // Replace with your actual name
 
+import brc.ChunkScheduler;
+import brc.DelimiterScanner;
+import brc.GzipReader;
+import brc.IoMode;
+import brc.MalformedLines;
+import brc.PrefetchReader;
+import brc.ResultWriter;
+import brc.SegmentAggregator;
+import brc.StationAggregator;
+import brc.StationStats;
+import brc.StationTable;
+import brc.SwarScanner;
+import brc.TemperatureParser;
+import brc.Whitespace;
+
 import java.io.IOException;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
-import java.util.DoubleSummaryStatistics;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.RecursiveTask;
+import java.util.List;
+import java.util.SortedMap;
 
 /**
  * Java 17+
@@ -21,7 +33,36 @@ import java.util.concurrent.RecursiveTask;
  * 
  * Usage: java yourname.TemperatureAnalyzer <input_file_path>
  */
-public class ChatGPT_V1_TemperatureAnalyzer {
+public class ChatGPT_V1_TemperatureAnalyzer implements StationAggregator, SegmentAggregator {
+
+    // SIMD delimiter search when jdk.incubator.vector is available, scalar otherwise
+    private final DelimiterScanner scanner = DelimiterScanner.best();
+    private final MalformedLines malformedLines;
+    private final IoMode io;
+
+    /**
+     * Creates an instance that only counts malformed lines and reads files as configured by the
+     * {@value IoMode#IO_PROPERTY} system property.
+     */
+    public ChatGPT_V1_TemperatureAnalyzer() {
+        this(new MalformedLines());
+    }
+
+    /**
+     * @param malformedLines receives every line that is skipped as malformed
+     */
+    public ChatGPT_V1_TemperatureAnalyzer(MalformedLines malformedLines) {
+        this(malformedLines, IoMode.configured());
+    }
+
+    /**
+     * @param malformedLines receives every line that is skipped as malformed
+     * @param io             how whole files are read
+     */
+    public ChatGPT_V1_TemperatureAnalyzer(MalformedLines malformedLines, IoMode io) {
+        this.malformedLines = malformedLines;
+        this.io = io;
+    }
 
     public static void main(String[] args) {
         if (args.length != 1) {
@@ -31,100 +72,206 @@ public class ChatGPT_V1_TemperatureAnalyzer {
 
         String fileName = args[0];
         ChatGPT_V1_TemperatureAnalyzer analyzer = new ChatGPT_V1_TemperatureAnalyzer();
-        Map<String, DoubleSummaryStatistics> result = analyzer.processFile(fileName);
-
-        result.entrySet().stream()
-            .sorted(Map.Entry.comparingByKey())
-            .forEach(entry -> {
-                String station = entry.getKey();
-                DoubleSummaryStatistics stats = entry.getValue();
-                System.out.printf("%s=%.1f/%.1f/%.1f%n", station, stats.getMin(), stats.getAverage(), stats.getMax());
-            });
+        StationTable result = analyzer.processFile(fileName);
+
+        try {
+            // Sorted and written from the raw UTF-8 names; nothing is decoded to a String
+            ResultWriter.stdout().write(result);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
     /**
-     * Processes the input file and calculates temperature statistics per weather station.
-     * @param fileName the path to the input file
-     * @return a map with weather station names and their temperature statistics
+     * Processes the input file and returns the statistics sorted by station name.
+     * @param file the path to the input file
+     * @return a sorted map with weather station names and their temperature statistics
+     * @throws IOException if the file cannot be mapped
      */
-    public Map<String, DoubleSummaryStatistics> processFile(String fileName) {
-        Map<String, DoubleSummaryStatistics> stationStats = new ConcurrentHashMap<>();
+    @Override
+    public SortedMap<String, StationStats> aggregate(Path file) throws IOException {
+        return aggregateTable(file).toSortedMap();
+    }
 
-        try (FileChannel fileChannel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
-            MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+    /**
+     * Processes the input file, mapped or through a {@link PrefetchReader} depending on the I/O mode.
+     * Gzip-compressed files are inflated while they are processed.
+     * @param file the path to the input file
+     * @return a table with weather station names and their temperature statistics
+     * @throws IOException if the file cannot be read
+     */
+    @Override
+    public StationTable aggregateTable(Path file) throws IOException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        if (GzipReader.isGzip(file)) {
+            // Members inflated in parallel, or one decompressing thread feeding the workers.
+            // Runs that are discarded must not report lines, so each task holds its reports
+            // and only the tasks that are returned commit them.
+            List<ProcessTask> workers = GzipReader.run(file, cores, PrefetchReader.DEFAULT_BUFFER_SIZE,
+                    () -> new ProcessTask(scanner, malformedLines.deferred()), ProcessTask::process);
+            workers.forEach(worker -> worker.malformedLines.commit());
+            return merge(workers);
+        }
+        if (io == IoMode.MMAP) {
+            return SegmentAggregator.super.aggregateTable(file);
+        }
+        // The calling thread only reads; the workers parse one pooled buffer at a time
+        return merge(PrefetchReader.run(file, cores, PrefetchReader.DEFAULT_BUFFER_SIZE,
+                () -> new ProcessTask(scanner, malformedLines), ProcessTask::process));
+    }
 
-            ForkJoinPool pool = new ForkJoinPool(); // Parallel processing
-            pool.invoke(new ProcessTask(buffer, stationStats));
+    /**
+     * Processes the input file and calculates temperature statistics per weather station.
+     * @param fileName the path to the input file
+     * @return a table with weather station names and their temperature statistics
+     */
+    public StationTable processFile(String fileName) {
+        // Mapped as one MemorySegment, so files larger than 2 GB work, unless prefetch I/O is configured
+        try {
+            return aggregateTable(Paths.get(fileName));
         } catch (IOException e) {
             e.printStackTrace();
         }
 
-        return stationStats;
+        return new StationTable();
     }
 
     /**
-     * Task for processing file contents in parallel.
+     * Calculates temperature statistics for the lines of a mapped range of a file.
+     * @param lines whole lines of the input
+     * @return a table with weather station names and their temperature statistics
      */
-    private static class ProcessTask extends RecursiveTask<Void> {
-        private static final int THRESHOLD = 1_000_000; // Tune based on testing
-        private final MappedByteBuffer buffer;
-        private final Map<String, DoubleSummaryStatistics> stationStats;
-
-        ProcessTask(MappedByteBuffer buffer, Map<String, DoubleSummaryStatistics> stationStats) {
-            this.buffer = buffer;
-            this.stationStats = stationStats;
+    @Override
+    public StationTable aggregate(MemorySegment lines) {
+        // One worker per core, each claiming line-aligned chunks until the range is done
+        return merge(ChunkScheduler.run(lines,
+                Runtime.getRuntime().availableProcessors(), ProcessTask.CHUNK_SIZE,
+                () -> new ProcessTask(scanner, malformedLines), (worker, start, end) -> worker.process(lines, start, end)));
+    }
+
+    private static StationTable merge(List<ProcessTask> workers) {
+        StationTable result = new StationTable();
+        workers.forEach(worker -> result.merge(worker.table));
+        return result;
+    }
+
+    /**
+     * The processing state of one worker thread.
+     * <p>
+     * The {@link ChunkScheduler} hands each worker line-aligned byte ranges of the mapped file,
+     * and the {@link PrefetchReader} whole buffers of lines, so a worker only ever sees whole
+     * lines. Every worker aggregates into its own {@link StationTable}; the tables are merged
+     * once all workers are done.
+     */
+    private static class ProcessTask {
+        private static final long CHUNK_SIZE = ChunkScheduler.DEFAULT_CHUNK_SIZE; // Tune based on testing
+        private final DelimiterScanner scanner;
+        private final MalformedLines malformedLines;
+        private final StationTable table = new StationTable();
+        private MemorySegment segment;
+
+        ProcessTask(DelimiterScanner scanner, MalformedLines malformedLines) {
+            this.scanner = scanner;
+            this.malformedLines = malformedLines;
         }
 
-        @Override
-        protected Void compute() {
-            if (buffer.remaining() <= THRESHOLD) {
-                processBuffer(buffer);
-                return null;
+        void process(MemorySegment lines) {
+            process(lines, 0, lines.byteSize());
+        }
+
+        void process(MemorySegment lines, long start, long end) {
+            segment = lines;
+            if (scanner instanceof SwarScanner) {
+                processWords(start, end);
+            } else {
+                processBuffer(start, end);
             }
+        }
 
-            int mid = buffer.position() + buffer.remaining() / 2;
-            buffer.position(mid);
-            buffer.mark(); // Mark the split point for the second half
+        /**
+         * Walks the lines of the range without creating any objects per line. The scanner
+         * finds the separator and the end of every line in one pass over the range.
+         */
+        private void processBuffer(long start, long end) {
+            scanner.forEachLine(segment, start, end, this::processLine);
+        }
 
-            ProcessTask task1 = new ProcessTask((MappedByteBuffer) buffer.duplicate().flip(), stationStats);
-            ProcessTask task2 = new ProcessTask((MappedByteBuffer) buffer.reset(), stationStats);
+        /**
+         * Walks the lines of the range eight bytes at a time. The words read to find the
+         * separator are also folded into the station hash, so the name is only touched once.
+         * Lines the fast path cannot take as they are (comments, padding around the name or
+         * temperature, no separator) go through {@link #processLine}.
+         */
+        private void processWords(long start, long end) {
+            long lineStart = start;
+            while (lineStart < end) {
+                if (segment.get(ValueLayout.JAVA_BYTE, lineStart) == '#') {
+                    lineStart = scanner.indexOf(segment, lineStart, end, (byte) '\n') + 1;
+                    continue;
+                }
 
-            invokeAll(task1, task2);
-            return null;
-        }
+                long hash = 0;
+                long separator = -1;
+                for (long position = lineStart; position < end; position += Long.BYTES) {
+                    long word = SwarScanner.word(segment, position);
+                    long semicolons = SwarScanner.matches(word, SwarScanner.SEMICOLONS);
+                    long newlines = SwarScanner.matches(word, SwarScanner.NEWLINES);
+                    if ((semicolons | newlines) == 0) {
+                        hash = StationTable.mixWord(hash, word);
+                        continue;
+                    }
+                    // Only a separator before the end of the line counts
+                    if (semicolons != 0 && (newlines == 0 || Long.numberOfTrailingZeros(semicolons) < Long.numberOfTrailingZeros(newlines))) {
+                        int index = SwarScanner.firstMatch(semicolons);
+                        separator = position + index;
+                        if (index > 0) {
+                            hash = StationTable.mixWord(hash, word & SwarScanner.lowBytes(index));
+                        }
+                    }
+                    break;
+                }
 
-        private void processBuffer(MappedByteBuffer localBuffer) {
-            StringBuilder currentLine = new StringBuilder();
-            while (localBuffer.hasRemaining()) {
-                char c = (char) localBuffer.get();
-                if (c == '\n') {
-                    processLine(currentLine.toString());
-                    currentLine.setLength(0); // Reset the line buffer
+                if (separator < 0 || separator >= end) {
+                    long lineEnd = scanner.indexOf(segment, lineStart, end, (byte) '\n');
+                    malformedLines.report(segment, lineStart, lineEnd, lineEnd);
+                    lineStart = lineEnd + 1;
+                    continue;
+                }
+
+                long newlines = SwarScanner.matches(SwarScanner.word(segment, separator + 1), SwarScanner.NEWLINES);
+                long lineEnd = newlines != 0
+                        ? Math.min(separator + 1 + SwarScanner.firstMatch(newlines), end)
+                        : scanner.indexOf(segment, separator + 1, end, (byte) '\n');
+
+                int length = (int) (separator - lineStart);
+                int temperature = TemperatureParser.parse(segment, separator + 1, lineEnd);
+                if (length == 0 || temperature == TemperatureParser.INVALID
+                        || Whitespace.is(segment.get(ValueLayout.JAVA_BYTE, lineStart))
+                        || Whitespace.is(segment.get(ValueLayout.JAVA_BYTE, separator - 1))) {
+                    processLine(lineStart, separator, lineEnd);
                 } else {
-                    currentLine.append(c);
+                    table.add(segment, lineStart, length, StationTable.finishHash(hash), temperature);
                 }
-            }
-            if (currentLine.length() > 0) {
-                processLine(currentLine.toString());
+                lineStart = lineEnd + 1;
             }
         }
 
-        private void processLine(String line) {
-            if (line.startsWith("#") || line.isBlank()) return;
-
-            String[] parts = line.split(";");
-            if (parts.length != 2) return;
+        private void processLine(long lineStart, long separator, long lineEnd) {
+            if (segment.get(ValueLayout.JAVA_BYTE, lineStart) == '#') return;
+            if (separator == lineEnd) {
+                malformedLines.report(segment, lineStart, separator, lineEnd);
+                return;
+            }
 
-            String station = parts[0].trim();
-            double temperature;
-            try {
-                temperature = Double.parseDouble(parts[1].trim());
-            } catch (NumberFormatException e) {
-                return; // Skip invalid entries
+            long nameStart = Whitespace.skip(segment, lineStart, separator);
+            long nameEnd = Whitespace.trim(segment, nameStart, separator);
+            int temperature = TemperatureParser.parse(segment, Whitespace.skip(segment, separator + 1, lineEnd), Whitespace.trim(segment, separator + 1, lineEnd));
+            if (temperature == TemperatureParser.INVALID || nameStart == nameEnd) {
+                malformedLines.report(segment, lineStart, separator, lineEnd); // Counted, then skipped
+                return;
             }
 
-            stationStats.computeIfAbsent(station, k -> new DoubleSummaryStatistics())
-                        .accept(temperature);
+            table.add(segment, nameStart, (int) (nameEnd - nameStart), temperature);
         }
     }
 }
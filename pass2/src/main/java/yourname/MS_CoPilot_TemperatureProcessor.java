@@ -1,17 +1,38 @@
 package yourname;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import brc.LineSpliterator;
+import brc.MalformedLines;
+import brc.MappedFile;
+import brc.ResultWriter;
+import brc.StationAggregator;
+import brc.StationCollectors;
+import brc.StationStats;
+
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 /**
  * Java version: 17
  * Program to retrieve temperature values from a text file, then calculate and print min, mean, and max temperatures per weather station.
  */
-public class MS_CoPilot_TemperatureProcessor {
+public class MS_CoPilot_TemperatureProcessor implements StationAggregator {
+
+    private final MalformedLines malformedLines;
+
+    /**
+     * Creates an instance that only counts malformed lines.
+     */
+    public MS_CoPilot_TemperatureProcessor() {
+        this(new MalformedLines());
+    }
+
+    /**
+     * @param malformedLines receives every line that is skipped as malformed
+     */
+    public MS_CoPilot_TemperatureProcessor(MalformedLines malformedLines) {
+        this.malformedLines = malformedLines;
+    }
 
     public static void main(String[] args) {
         if (args.length == 0) {
@@ -19,38 +40,35 @@ public class MS_CoPilot_TemperatureProcessor {
             return;
         }
         String fileName = args[0];
-        ConcurrentHashMap<String, List<Double>> temperatureData = new ConcurrentHashMap<>();
-
-        try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
-            br.lines().parallel().forEach(line -> {
-                if (line.startsWith("#")) return; // Ignore comments
-                String[] parts = line.split(";");
-                if (parts.length != 2) return;
-                String station = parts[0].trim();
-                double temp;
-                try {
-                    temp = Double.parseDouble(parts[1].trim());
-                } catch (NumberFormatException e) {
-                    return; // Skip malformed lines
-                }
-                temperatureData.computeIfAbsent(station, k -> Collections.synchronizedList(new ArrayList<>())).add(temp);
-            });
+        Map<String, StationStats> result = new TreeMap<>();
+
+        try {
+            result = new MS_CoPilot_TemperatureProcessor().aggregate(Path.of(fileName));
         } catch (IOException e) {
             e.printStackTrace();
         }
 
-        Map<String, String> result = temperatureData.entrySet().parallelStream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        entry -> {
-                            List<Double> temps = entry.getValue();
-                            double min = temps.stream().min(Double::compare).orElse(Double.NaN);
-                            double max = temps.stream().max(Double::compare).orElse(Double.NaN);
-                            double mean = temps.stream().mapToDouble(Double::doubleValue).average().orElse(Double.NaN);
-                            return String.format("%.1f/%.1f/%.1f", min, mean, max);
-                        }
-                ));
-
-        result.keySet().stream().sorted().forEach(key -> System.out.println(key + "=" + result.get(key)));
+        try {
+            ResultWriter.stdout().write(result);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads the mapped file with a parallel stream and calculates the statistics per weather station.
+     * @param file the input file
+     * @return the statistics per station, sorted by station name
+     * @throws IOException if the file cannot be read
+     */
+    @Override
+    public SortedMap<String, StationStats> aggregate(Path file) throws IOException {
+        // One running StationStats per station and stream partition keeps memory constant in the number of rows;
+        // the collector merges the partitions, skipping malformed lines once they are reported
+        try (MappedFile mapped = MappedFile.open(file)) {
+            return LineSpliterator.records(mapped, true)
+                    .filter(record -> !record.isComment()) // Ignore comments
+                    .collect(StationCollectors.toStationStats(record -> record.station().trim(), malformedLines::temperature));
+        }
     }
 }
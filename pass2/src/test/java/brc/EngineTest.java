@@ -0,0 +1,53 @@
+package brc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class EngineTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testEnginesAgreeOnPaddedAndMalformedLines() throws IOException {
+        Path file = Files.writeString(directory.resolve("measurements.txt"), String.join("\n",
+                "# comment;1.0",
+                "Oslo; 1.2",
+                " Oslo ;1.4 ",
+                "\tBergen\t;\t-3.0\t",
+                "Z\u00fcrich;0.5\r",
+                "Oslo;1.2;",
+                ";1.0",
+                " ;1.0",
+                "Bergen;",
+                "Bergen12.3",
+                "Bergen;N/A",
+                "Oslo;-0.9"));
+        String expected = "{Bergen=-3.0/-3.0/-3.0, Oslo=-0.9/0.6/1.4, Z\u00fcrich=0.5/0.5/0.5}";
+
+        for (Engine engine : Engine.values()) {
+            assertEquals(expected, engine.aggregate(file).toString(), engine.name());
+        }
+    }
+
+    @Test
+    public void testEnginesCountTheSameMalformedLines() throws IOException {
+        Path file = Files.writeString(directory.resolve("measurements.txt"),
+                "Oslo; 1.2\n;1.0\n \t;1.0\nOslo; \nOslo\nOslo;1.2;\nOslo;12.34\n");
+
+        for (Engine engine : Engine.values()) {
+            if (engine.reportsMalformedLines()) {
+                MalformedLines malformedLines = new MalformedLines();
+                engine.create(malformedLines).aggregate(file);
+                assertEquals("missing_separator=1, missing_station=2, missing_temperature=1, bad_temperature=2",
+                        malformedLines.toString(), engine.name());
+            }
+        }
+    }
+}
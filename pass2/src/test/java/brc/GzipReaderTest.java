@@ -0,0 +1,159 @@
+package brc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GzipReaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testJoinsLinesAcrossMembers() throws IOException {
+        byte[] text = lines(2_000);
+        // Members of 1 to 700 bytes, cut anywhere within lines; the 1 to 3-byte ones hold no newline
+        List<Integer> cuts = new ArrayList<>();
+        for (int position = 0, i = 0; position < text.length; i++) {
+            cuts.add(position);
+            position += i % 5 == 0 ? 1 + i % 3 : 50 + (i * 37) % 650;
+        }
+        Path file = gzip(text, cuts);
+
+        assertEquals(sorted(text), sorted(read(file, 4)));
+    }
+
+    @Test
+    public void testReadsSingleMember() throws IOException {
+        byte[] text = lines(5_000);
+        Path file = gzip(text, List.of(0));
+
+        assertEquals(sorted(text), sorted(read(file, 4)));
+    }
+
+    @Test
+    public void testKeepsUnterminatedLastLine() throws IOException {
+        byte[] text = "Hamburg;12.3\nBulawayo;8.9\nPalembang;38.8".getBytes(StandardCharsets.UTF_8);
+        Path file = gzip(text, List.of(0, 5, 13, 20, 30));
+
+        assertEquals(sorted(text), sorted(read(file, 2)));
+    }
+
+    @Test
+    public void testSplitsMembersOfAnySize() throws IOException {
+        // Two members of several MB each, so the second one starts far past every split point
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < 20 << 20) {
+            builder.append(Long.toHexString(random.nextLong())).append(';')
+                    .append(random.nextInt(1999) - 999).append(".0\n");
+        }
+        byte[] text = builder.toString().getBytes(StandardCharsets.UTF_8);
+        int half = text.length / 2;
+        Path file = gzip(text, List.of(0, half));
+        long second;
+        try (ByteArrayOutputStream member = new ByteArrayOutputStream();
+             GZIPOutputStream out = new GZIPOutputStream(member)) {
+            out.write(text, 0, half);
+            out.finish();
+            second = member.size();
+        }
+
+        try (MappedFile mapped = MappedFile.open(file)) {
+            long[] starts = GzipReader.runStarts(mapped.segment(), 16);
+            assertTrue(second > 4 << 20);
+            assertArrayEquals(new long[] {0, second}, starts);
+        }
+        assertEquals(sorted(text), sorted(read(file, 4)));
+    }
+
+    @Test
+    public void testFailsOnCorruptFirstMember() throws IOException {
+        byte[] text = lines(2_000);
+        List<Integer> cuts = new ArrayList<>();
+        for (int position = 0; position < text.length; position += 2_000) {
+            cuts.add(position);
+        }
+        Path file = gzip(text, cuts);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[200] ^= 0x55; // Inside the compressed data of the first member
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> read(file, 4));
+    }
+
+    @Test
+    public void testDetectsGzip() throws IOException {
+        Path plain = Files.write(directory.resolve("plain.txt"), lines(10));
+
+        assertTrue(GzipReader.isGzip(gzip(lines(10), List.of(0))));
+        assertFalse(GzipReader.isGzip(plain));
+        assertFalse(GzipReader.isGzip(Files.write(directory.resolve("empty.txt"), new byte[0])));
+    }
+
+    private static byte[] lines(int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append("Station ").append(i % 97).append(" \u00e9").append(';')
+                    .append((i * 13) % 999 - 499).append('.').append(i % 10).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the text as one gzip member per cut, each starting at its cut.
+     */
+    private Path gzip(byte[] text, List<Integer> cuts) throws IOException {
+        ByteArrayOutputStream members = new ByteArrayOutputStream();
+        for (int i = 0; i < cuts.size(); i++) {
+            int end = i + 1 < cuts.size() ? cuts.get(i + 1) : text.length;
+            ByteArrayOutputStream member = new ByteArrayOutputStream();
+            try (GZIPOutputStream out = new GZIPOutputStream(member)) {
+                out.write(text, cuts.get(i), end - cuts.get(i));
+            }
+            member.writeTo(members);
+        }
+        return Files.write(Files.createTempFile(directory, "measurements", ".txt.gz"), members.toByteArray());
+    }
+
+    /**
+     * Collects every line the workers are given, each followed by a newline.
+     */
+    private static byte[] read(Path file, int workers) throws IOException {
+        List<ByteArrayOutputStream> states = GzipReader.run(file, workers, 4096, ByteArrayOutputStream::new,
+                (state, lines) -> {
+                    state.writeBytes(lines.toArray(ValueLayout.JAVA_BYTE));
+                    if (lines.get(ValueLayout.JAVA_BYTE, lines.byteSize() - 1) != '\n') {
+                        state.write('\n');
+                    }
+                });
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+        for (ByteArrayOutputStream state : states) {
+            state.writeTo(all);
+        }
+        return all.toByteArray();
+    }
+
+    private static List<String> sorted(byte[] text) {
+        String[] lines = new String(text, StandardCharsets.UTF_8).split("\n");
+        Arrays.sort(lines);
+        return List.of(lines);
+    }
+}
@@ -0,0 +1,118 @@
+package brc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MalformedLinesTest {
+
+    private static final Map<String, LineError> LINES = Map.ofEntries(
+            Map.entry("", LineError.MISSING_SEPARATOR),
+            Map.entry("Hamburg12.3", LineError.MISSING_SEPARATOR),
+            Map.entry(";12.3", LineError.MISSING_STATION),
+            Map.entry(" \t;12.3", LineError.MISSING_STATION),
+            Map.entry(";", LineError.MISSING_STATION),
+            Map.entry("Hamburg;", LineError.MISSING_TEMPERATURE),
+            Map.entry("Hamburg; \t", LineError.MISSING_TEMPERATURE),
+            Map.entry("Hamburg;N/A", LineError.BAD_TEMPERATURE),
+            Map.entry("Hamburg;123.45", LineError.BAD_TEMPERATURE),
+            Map.entry("Hamburg;12.3;4", LineError.BAD_TEMPERATURE));
+
+    @Test
+    public void testClassifiesSegments() {
+        for (Map.Entry<String, LineError> line : LINES.entrySet()) {
+            MalformedLines malformedLines = new MalformedLines();
+            byte[] bytes = ("x\n" + line.getKey() + "\n").getBytes(StandardCharsets.UTF_8);
+            long end = bytes.length - 1;
+            long separator = line.getKey().indexOf(';') < 0 ? end : 2 + line.getKey().indexOf(';');
+
+            malformedLines.report(MemorySegment.ofArray(bytes), 2, separator, end);
+            assertOnly(line.getValue(), malformedLines, line.getKey());
+        }
+    }
+
+    @Test
+    public void testClassifiesStrings() {
+        for (Map.Entry<String, LineError> line : LINES.entrySet()) {
+            MalformedLines malformedLines = new MalformedLines();
+
+            malformedLines.report(line.getKey());
+            assertOnly(line.getValue(), malformedLines, line.getKey());
+        }
+    }
+
+    @Test
+    public void testTemperatureRejectsBlankStation() {
+        MalformedLines malformedLines = new MalformedLines();
+
+        assertEquals(TemperatureParser.INVALID, malformedLines.temperature(record(" ;12.3")));
+        assertEquals(TemperatureParser.INVALID, malformedLines.temperature(record("Hamburg;12.34")));
+        assertEquals(123, malformedLines.temperature(record("Hamburg;12.3")));
+        assertEquals(1, malformedLines.count(LineError.MISSING_STATION));
+        assertEquals(1, malformedLines.count(LineError.BAD_TEMPERATURE));
+        assertEquals(2, malformedLines.total());
+    }
+
+    @Test
+    public void testDeferredCountsOnlyWhenCommitted() {
+        MalformedLines malformedLines = new MalformedLines();
+        MalformedLines deferred = malformedLines.deferred();
+        deferred.report("Hamburg;");
+        deferred.report(";1.0");
+
+        assertEquals(0, malformedLines.total());
+        deferred.commit();
+        assertEquals(1, malformedLines.count(LineError.MISSING_TEMPERATURE));
+        assertEquals(1, malformedLines.count(LineError.MISSING_STATION));
+        deferred.commit();
+        assertEquals(2, malformedLines.total());
+    }
+
+    @Test
+    public void testQuarantinesUpToTheLimit(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("quarantine.txt");
+        MalformedLines malformedLines = new MalformedLines(file, 2);
+        try (malformedLines) {
+            malformedLines.report("first");
+            MalformedLines deferred = malformedLines.deferred();
+            deferred.report("second;");
+            deferred.report(";third");
+            deferred.commit();
+        }
+
+        assertEquals(3, malformedLines.total());
+        assertEquals(1, malformedLines.dropped());
+        assertEquals(List.of("first", "second;"), Files.readAllLines(file));
+    }
+
+    @Test
+    public void testToString() {
+        MalformedLines malformedLines = new MalformedLines();
+        malformedLines.report("Hamburg");
+        malformedLines.report("Hamburg;x");
+        malformedLines.report("Hamburg;y");
+
+        assertEquals("missing_separator=1, missing_station=0, missing_temperature=0, bad_temperature=2",
+                malformedLines.toString());
+    }
+
+    private static MeasurementRecord record(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return new MeasurementRecord(MemorySegment.ofArray(bytes), 0, line.indexOf(';'), bytes.length);
+    }
+
+    private static void assertOnly(LineError expected, MalformedLines malformedLines, String line) {
+        for (LineError error : LineError.values()) {
+            assertEquals(error == expected ? 1 : 0, malformedLines.count(error), () -> error + " count for \"" + line + "\"");
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package brc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class QuarantineWriterTest {
+
+    @Test
+    public void testQueueFullDropsDoNotUseUpTheLimit() throws IOException, InterruptedException {
+        StalledOutputStream out = new StalledOutputStream();
+        QuarantineWriter writer = new QuarantineWriter(out, 3, 1);
+
+        writer.offer(bytes("first"));
+        out.writing.acquire(); // The writer thread holds "first", so the queue is empty
+        writer.offer(bytes("second"));
+        writer.offer(bytes("full")); // The queue holds "second"
+        out.resume.countDown();
+        out.writing.acquire(); // The writer thread holds "second"
+        writer.offer(bytes("third"));
+        writer.offer(bytes("over"));
+        writer.close();
+
+        assertEquals("first\nsecond\nthird\n", out.written.toString(StandardCharsets.UTF_8));
+        assertEquals(2, writer.dropped());
+    }
+
+    private static byte[] bytes(String line) {
+        return line.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Signals each line the writer thread starts to write, and holds the first one until resumed.
+     */
+    private static final class StalledOutputStream extends OutputStream {
+
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        final Semaphore writing = new Semaphore(0);
+        final CountDownLatch resume = new CountDownLatch(1);
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            writing.release();
+            try {
+                resume.await();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+            written.write(bytes, offset, length);
+        }
+
+        @Override
+        public void write(int b) {
+            written.write(b);
+        }
+    }
+}
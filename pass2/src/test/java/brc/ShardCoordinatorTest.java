@@ -0,0 +1,41 @@
+package brc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ShardCoordinatorTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testCountsMalformedLinesOfEveryShard() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 3_000; i++) {
+            text.append(switch (i % 6) {
+                case 0 -> "Hamburg";
+                case 1 -> " ;1.0";
+                case 2 -> "Bulawayo;";
+                case 3 -> "Palembang;N/A";
+                default -> "St. John's;" + (i % 199 - 99) + ".5";
+            }).append('\n');
+        }
+        Path file = Files.writeString(directory.resolve("measurements.txt"), text);
+        MalformedLines expected = new MalformedLines();
+        StationTable single = ((SegmentAggregator) Engine.CHATGPT_V1.create(expected)).aggregateTable(file);
+
+        MalformedLines malformedLines = new MalformedLines();
+        StationTable sharded = new ShardCoordinator(Engine.CHATGPT_V1, 3, malformedLines).aggregateTable(file);
+
+        assertEquals(single.toSortedMap().toString(), sharded.toSortedMap().toString());
+        assertEquals("missing_separator=500, missing_station=500, missing_temperature=500, bad_temperature=500",
+                malformedLines.toString());
+        assertEquals(expected.toString(), malformedLines.toString());
+    }
+}
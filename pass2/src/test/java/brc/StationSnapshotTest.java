@@ -0,0 +1,134 @@
+package brc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.SortedMap;
+
+import static brc.StationTableTest.add;
+import static brc.StationTableTest.assertSameStats;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StationSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRoundTripThroughFile() throws IOException {
+        StationTable table = sample();
+        Path file = directory.resolve("table.snapshot");
+
+        StationSnapshot.write(table, file);
+        StationTable read = StationSnapshot.read(file);
+
+        assertEquals(table.size(), read.size());
+        assertSameStats(table.toSortedMap(), read.toSortedMap());
+    }
+
+    @Test
+    public void testRoundTripThroughSegment() {
+        StationTable table = sample();
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment segment = arena.allocate(StationSnapshot.byteSize(table));
+
+            assertEquals(segment.byteSize(), StationSnapshot.write(table, segment));
+            StationTable read = new StationTable();
+            assertEquals(segment.byteSize(), StationSnapshot.merge(segment, read));
+            assertSameStats(table.toSortedMap(), read.toSortedMap());
+        }
+    }
+
+    @Test
+    public void testRoundTripsNamesOf64KbAndMore() throws IOException {
+        StationTable table = sample();
+        String longName = "L".repeat(0xFFFF) + "\u00e9".repeat(3_000);
+        add(table, longName, 123);
+        add(table, "After", -5);
+        Path file = directory.resolve("long.snapshot");
+
+        StationSnapshot.write(table, file);
+        StationTable read = StationSnapshot.read(file);
+
+        assertEquals(0xFFFF + 6_000, longName.getBytes(StandardCharsets.UTF_8).length);
+        assertSameStats(table.toSortedMap(), read.toSortedMap());
+        assertEquals(123, read.toSortedMap().get(longName).maxTenths());
+    }
+
+    @Test
+    public void testRejectsVersion1() {
+        MemorySegment segment = snapshot(sample());
+        segment.set(ValueLayout.JAVA_BYTE, 4, (byte) 1);
+
+        assertThrows(IllegalArgumentException.class, () -> StationSnapshot.merge(segment, new StationTable()));
+    }
+
+    @Test
+    public void testMergeAddsToExistingStations() {
+        StationTable table = sample();
+        StationTable target = new StationTable();
+        add(target, "Hamburg", 400);
+        add(target, "Kyiv", -10);
+        MemorySegment segment = snapshot(table);
+
+        StationSnapshot.merge(segment, target);
+
+        StationStats hamburg = table.toSortedMap().get("Hamburg");
+        SortedMap<String, StationStats> merged = target.toSortedMap();
+        assertEquals(table.size() + 1, merged.size());
+        assertEquals(Math.max(400, hamburg.maxTenths()), merged.get("Hamburg").maxTenths());
+        assertEquals(hamburg.sumTenths() + 400, merged.get("Hamburg").sumTenths());
+        assertEquals(hamburg.count() + 1, merged.get("Hamburg").count());
+        assertEquals(-10, merged.get("Kyiv").minTenths());
+    }
+
+    @Test
+    public void testRejectsTruncatedSnapshotWithoutChangingTable() {
+        MemorySegment segment = snapshot(sample());
+        StationTable target = new StationTable();
+        add(target, "Hamburg", 400);
+
+        for (long length : new long[] {0, 8, 16, 17, segment.byteSize() - 1}) {
+            assertThrows(IllegalArgumentException.class, () -> StationSnapshot.merge(segment.asSlice(0, length), target));
+        }
+        assertEquals(1, target.size());
+        assertEquals(1, target.toSortedMap().get("Hamburg").count());
+    }
+
+    @Test
+    public void testRejectsCorruptSnapshot() {
+        MemorySegment wrongMagic = snapshot(sample());
+        wrongMagic.set(ValueLayout.JAVA_BYTE, 0, (byte) 'X');
+        MemorySegment wrongVersion = snapshot(sample());
+        wrongVersion.set(ValueLayout.JAVA_BYTE, 4, (byte) (StationSnapshot.VERSION + 1));
+        MemorySegment tooManyStations = snapshot(sample());
+        tooManyStations.set(ValueLayout.JAVA_BYTE, 8, (byte) 100);
+
+        assertThrows(IllegalArgumentException.class, () -> StationSnapshot.merge(wrongMagic, new StationTable()));
+        assertThrows(IllegalArgumentException.class, () -> StationSnapshot.merge(wrongVersion, new StationTable()));
+        assertThrows(IllegalArgumentException.class, () -> StationSnapshot.merge(tooManyStations, new StationTable()));
+    }
+
+    private static StationTable sample() {
+        StationTable table = new StationTable();
+        String[] names = {"Hamburg", "Bulawayo", "Palembang", "St. John's", "Z\u00fcrich", "\u6771\u4eac",
+                "\ud83d\ude00", "x".repeat(100)};
+        for (int i = 0; i < 1_000; i++) {
+            add(table, names[i % names.length], (i * 37) % 1999 - 999);
+        }
+        return table;
+    }
+
+    private static MemorySegment snapshot(StationTable table) {
+        MemorySegment segment = MemorySegment.ofArray(new byte[(int) StationSnapshot.byteSize(table)]);
+        StationSnapshot.write(table, segment);
+        return segment;
+    }
+}
@@ -0,0 +1,105 @@
+package brc;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StationTableTest {
+
+    @Test
+    public void testGrowsAndKeepsEveryStation() {
+        StationTable table = new StationTable();
+        SortedMap<String, StationStats> expected = new TreeMap<>();
+        int initialCapacity = table.capacity();
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 20_000; i++) {
+                // Names from 1 to over 100 bytes, so some cross several words of the hash
+                String name = "Station " + i + "-".repeat(i % 97);
+                int temperature = (i * 7 + round * 131) % 1999 - 999;
+                add(table, name, temperature);
+                expected.computeIfAbsent(name, n -> new StationStats()).add(temperature);
+            }
+        }
+
+        assertEquals(20_000, table.size());
+        assertTrue(table.capacity() > initialCapacity);
+        assertTrue(table.capacity() >= 2 * table.size());
+        assertSameStats(expected, table.toSortedMap());
+    }
+
+    @Test
+    public void testFindsStationsInAnySegment() {
+        StationTable table = new StationTable();
+        byte[] line = "xxHamburg;12.3".getBytes(StandardCharsets.UTF_8);
+        table.add(MemorySegment.ofArray(line), 2, 7, 123);
+        add(table, "Hamburg", -45);
+
+        assertEquals(1, table.size());
+        StationStats stats = table.toSortedMap().get("Hamburg");
+        assertEquals(-45, stats.minTenths());
+        assertEquals(123, stats.maxTenths());
+        assertEquals(2, stats.count());
+    }
+
+    @Test
+    public void testMergeAddsStatistics() {
+        StationTable first = new StationTable();
+        StationTable second = new StationTable();
+        SortedMap<String, StationStats> expected = new TreeMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            String name = "N\u00e4me " + i;
+            add(first, name, i % 500);
+            expected.computeIfAbsent(name, n -> new StationStats()).add(i % 500);
+        }
+        for (int i = 2_500; i < 10_000; i++) {
+            String name = "N\u00e4me " + i;
+            add(second, name, -(i % 700));
+            expected.computeIfAbsent(name, n -> new StationStats()).add(-(i % 700));
+        }
+
+        assertEquals(first, first.merge(second));
+        assertEquals(10_000, first.size());
+        assertSameStats(expected, first.toSortedMap());
+    }
+
+    @Test
+    public void testMergeKeepsCounters() {
+        StationTable first = new StationTable();
+        StationTable second = new StationTable();
+        for (int i = 0; i < 2_000; i++) {
+            add(first, "a" + i, 0);
+            add(second, "b" + i, 0);
+        }
+        long collisions = first.collisions() + second.collisions();
+        long probes = first.probes() + second.probes();
+
+        first.merge(second);
+        assertTrue(first.collisions() >= collisions);
+        assertTrue(first.probes() >= probes);
+        assertTrue(first.probes() >= first.collisions());
+    }
+
+    static void add(StationTable table, String name, int temperature) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        table.add(MemorySegment.ofArray(bytes), 0, bytes.length, temperature);
+    }
+
+    static void assertSameStats(Map<String, StationStats> expected, Map<String, StationStats> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, StationStats> entry : expected.entrySet()) {
+            StationStats want = entry.getValue();
+            StationStats got = actual.get(entry.getKey());
+            assertEquals(want.minTenths(), got.minTenths(), entry.getKey());
+            assertEquals(want.maxTenths(), got.maxTenths(), entry.getKey());
+            assertEquals(want.sumTenths(), got.sumTenths(), entry.getKey());
+            assertEquals(want.count(), got.count(), entry.getKey());
+        }
+    }
+}
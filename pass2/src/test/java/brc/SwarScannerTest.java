@@ -0,0 +1,70 @@
+package brc;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SwarScannerTest {
+
+    @Test
+    public void testWordHashMatchesTableHash() {
+        for (int length = 1; length <= 40; length++) {
+            String name = "\u00c5bc-d\u00e9f_0123456789_\u20acuvwxyz_ABCDEFGHIJKLMNOPQRSTU".substring(0, length);
+            for (int i = 0; i < Long.BYTES; i++) {
+                int padding = i;
+                for (String rest : new String[] {";12.3\n", ";"}) {
+                    byte[] bytes = ("\n".repeat(padding) + name + rest).getBytes(StandardCharsets.UTF_8);
+                    MemorySegment segment = MemorySegment.ofArray(bytes);
+                    int nameLength = name.getBytes(StandardCharsets.UTF_8).length;
+
+                    long[] separator = new long[1];
+                    int hash = hashWords(segment, padding, separator);
+                    assertEquals(padding + nameLength, separator[0], name);
+                    assertEquals(StationTable.hash(segment, padding, nameLength), hash,
+                            () -> "Hash of " + name + " at " + padding + " followed by " + rest.strip());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIndexOfMatchesScalarScan() {
+        byte[] bytes = "Hamburg;12.3\nBulawayo;8.9\n\n;\nPalembang;38.8\nSt. John's;15.2".getBytes(StandardCharsets.UTF_8);
+        MemorySegment segment = MemorySegment.ofArray(bytes);
+        DelimiterScanner swar = new SwarScanner();
+        DelimiterScanner scalar = DelimiterScanner.scalar();
+        for (int from = 0; from <= bytes.length; from++) {
+            for (int to = from; to <= bytes.length; to++) {
+                for (byte delimiter : new byte[] {';', '\n'}) {
+                    assertEquals(scalar.indexOf(segment, from, to, delimiter), swar.indexOf(segment, from, to, delimiter),
+                            "[" + from + ", " + to + ") for " + (char) delimiter);
+                }
+            }
+        }
+    }
+
+    /**
+     * Folds the name into the hash word by word while looking for the separator, the way the
+     * parse loop of the {@code chatgpt_v1} engine does.
+     */
+    private static int hashWords(MemorySegment segment, long lineStart, long[] separator) {
+        long hash = 0;
+        for (long position = lineStart; ; position += Long.BYTES) {
+            long word = SwarScanner.word(segment, position);
+            long semicolons = SwarScanner.matches(word, SwarScanner.SEMICOLONS);
+            if (semicolons == 0) {
+                hash = StationTable.mixWord(hash, word);
+                continue;
+            }
+            int index = SwarScanner.firstMatch(semicolons);
+            separator[0] = position + index;
+            if (index > 0) {
+                hash = StationTable.mixWord(hash, word & SwarScanner.lowBytes(index));
+            }
+            return StationTable.finishHash(hash);
+        }
+    }
+}
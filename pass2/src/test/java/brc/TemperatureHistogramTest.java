@@ -0,0 +1,91 @@
+package brc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TemperatureHistogramTest {
+
+    @Test
+    public void testMatchesSortedReadings() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            int center = random.nextInt(1999) - 999;
+            int spread = 1 + random.nextInt(round % 4 == 0 ? 1999 : 300);
+            int[] readings = new int[1 + random.nextInt(2_000)];
+            TemperatureHistogram histogram = new TemperatureHistogram();
+            for (int i = 0; i < readings.length; i++) {
+                readings[i] = Math.max(-999, Math.min(999, center + random.nextInt(spread) - spread / 2));
+                histogram.add(readings[i]);
+            }
+
+            assertSamePercentiles(readings, histogram);
+        }
+    }
+
+    @Test
+    public void testMergesHistogramsOfDifferentRanges() {
+        int[][] ranges = {{-999, -990}, {990, 999}, {-5, 5}, {}, {-999, 999}};
+        TemperatureHistogram merged = new TemperatureHistogram();
+        int[] all = new int[0];
+        for (int[] range : ranges) {
+            TemperatureHistogram histogram = new TemperatureHistogram();
+            int[] readings = range.length == 0 ? new int[0] : new int[range[1] - range[0] + 1];
+            for (int i = 0; i < readings.length; i++) {
+                readings[i] = range[0] + i;
+                histogram.add(readings[i]);
+            }
+            merged.merge(histogram);
+            all = concat(all, readings);
+
+            assertSamePercentiles(all, merged);
+        }
+        assertEquals(TemperatureHistogram.BUCKETS, merged.allocatedBuckets());
+    }
+
+    @Test
+    public void testAllocatesOnlyTheRangeOfReadings() {
+        TemperatureHistogram histogram = new TemperatureHistogram();
+        assertEquals(0, histogram.allocatedBuckets());
+
+        histogram.add(123);
+        assertEquals(TemperatureHistogram.MIN_BUCKETS, histogram.allocatedBuckets());
+        for (int tenths = -100; tenths <= 300; tenths++) {
+            histogram.add(tenths);
+        }
+        assertTrue(histogram.allocatedBuckets() >= 401 && histogram.allocatedBuckets() <= 2 * 401,
+                () -> histogram.allocatedBuckets() + " buckets");
+        histogram.add(-999);
+        histogram.add(999);
+        assertEquals(TemperatureHistogram.BUCKETS, histogram.allocatedBuckets());
+    }
+
+    @Test
+    public void testRejectsEmptyHistogram() {
+        assertThrows(IllegalStateException.class, () -> new TemperatureHistogram().percentile(50));
+        assertThrows(IllegalStateException.class, () -> new TemperatureHistogram().twiceMedianTenths());
+    }
+
+    private static void assertSamePercentiles(int[] readings, TemperatureHistogram histogram) {
+        int[] sorted = readings.clone();
+        Arrays.sort(sorted);
+        assertEquals(sorted.length, histogram.count());
+        for (int percent : new int[] {1, 7, 50, 95, 99, 100}) {
+            int rank = (percent * sorted.length + 99) / 100; // Nearest rank, ceil(percent / 100 * n)
+            assertEquals(sorted[rank - 1], histogram.percentile(percent), () -> "p" + percent);
+        }
+        int n = sorted.length;
+        assertEquals(n % 2 == 1 ? 2L * sorted[n / 2] : (long) sorted[n / 2 - 1] + sorted[n / 2], histogram.twiceMedianTenths());
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+}
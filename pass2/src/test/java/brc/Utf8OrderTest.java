@@ -0,0 +1,76 @@
+package brc;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class Utf8OrderTest {
+
+    // U+D7FF is the last code point below the surrogates; U+E000-U+F8FF is the BMP private use
+    // area; U+FFxx has the lead byte EF; the rest are supplementary, surrogate pairs in UTF-16
+    private static final List<String> NAMES = List.of(
+            "", "A", "Z", "a", "Abc", "Ab", "\u00e9", "Z\u00fcrich", "\u07ff", "\u0800",
+            "\ud7ff", "\ue000", "\ue0ff", "\uf8ff", "\ufb01",
+            "\uff21", "\uffee", "\ufffd", "\uffff",
+            "\ud800\udc00", "\ud83d\ude00", "\udbff\udfff",
+            "a\ue000", "a\ud83d\ude00", "a\ufffd", "a\ud7ff",
+            "\ue000\ud83d\ude00", "\ud83d\ude00\ue000", "\ufffda", "\ud800\udc00a");
+
+    @Test
+    public void testCompareMatchesStringOrderForEveryPair() {
+        for (String a : NAMES) {
+            for (String b : NAMES) {
+                assertEquals(Integer.signum(a.compareTo(b)), Integer.signum(compare(a, b)),
+                        () -> "Order of " + codePoints(a) + " and " + codePoints(b));
+            }
+        }
+    }
+
+    @Test
+    public void testCompareWithinOneSegment() {
+        byte[] first = "x\uffee".getBytes(StandardCharsets.UTF_8);
+        byte[] second = "x\ud83d\ude00".getBytes(StandardCharsets.UTF_8);
+        byte[] both = new byte[first.length + second.length];
+        System.arraycopy(first, 0, both, 0, first.length);
+        System.arraycopy(second, 0, both, first.length, second.length);
+        MemorySegment segment = MemorySegment.ofArray(both);
+
+        // U+FFEE sorts after the surrogate pair in String order, before U+1F600 in code point order
+        assertEquals(1, Integer.signum(Utf8Order.compare(segment, 0, first.length, segment, first.length, second.length)));
+        assertEquals(-1, Integer.signum(Utf8Order.compare(segment, first.length, second.length, segment, 0, first.length)));
+    }
+
+    @Test
+    public void testTableSortsLikeStrings() {
+        StationTable table = new StationTable();
+        for (String name : NAMES) {
+            if (!name.isEmpty()) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                table.add(MemorySegment.ofArray(bytes), 0, bytes.length, 0);
+            }
+        }
+
+        List<String> sorted = new ArrayList<>();
+        for (int entry : table.sortedEntries()) {
+            sorted.add(table.name(entry));
+        }
+        assertEquals(List.copyOf(table.toSortedMap().keySet()), sorted);
+    }
+
+    private static int compare(String a, String b) {
+        byte[] aBytes = a.getBytes(StandardCharsets.UTF_8);
+        byte[] bBytes = b.getBytes(StandardCharsets.UTF_8);
+        return Utf8Order.compare(MemorySegment.ofArray(aBytes), 0, aBytes.length, MemorySegment.ofArray(bBytes), 0, bBytes.length);
+    }
+
+    private static String codePoints(String s) {
+        StringBuilder result = new StringBuilder("\"");
+        s.codePoints().forEach(c -> result.append(String.format("U+%04X ", c)));
+        return result.append('"').toString();
+    }
+}